@@ -0,0 +1,105 @@
+/**
+ * (C) Copyright IBM Corp. 2016,2022. All Rights Reserved. US Government Users Restricted Rights - Use,
+ * duplication or disclosure restricted by GSA ADP Schedule Contract with IBM Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.ibm.vie.mazerunner.bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import com.ibm.vie.mazerunner.MapBoard;
+import com.ibm.vie.mazerunner.util.BoardGenerator;
+
+/**
+ * Boards used by the benchmarks. A name is either the name of a board in the boards directory,
+ * like "Level_3_10", or the size of a generated maze, like "prim_200x200".
+ */
+final class BenchmarkBoards {
+  private static final String GENERATED_PREFIX = "prim_";
+
+  private BenchmarkBoards() {}
+
+  static MapBoard load(String name) {
+    if (name.startsWith(GENERATED_PREFIX)) {
+      String[] size = name.substring(GENERATED_PREFIX.length()).split("x");
+      int width = Integer.parseInt(size[0]);
+      int height = Integer.parseInt(size[1]);
+      return (MapBoard) MapBoard.randomizedPrim(name, width, height, 20, 100, 0,
+          width * height * 10);
+    }
+    return MapBoard.parseBoard(new File(getBoardDirectory(), name + ".csv").getAbsolutePath());
+  }
+
+  /**
+   * Gets a CSV file of a board. Generated mazes are written to a temporary file, which is deleted
+   * when the JVM exits.
+   */
+  static File csvFile(String name) throws IOException {
+    if (name.startsWith(GENERATED_PREFIX)) {
+      File file = File.createTempFile(name, ".csv");
+      file.deleteOnExit();
+      // The generator echoes the whole board to System.out
+      PrintStream out = System.out;
+      System.setOut(new PrintStream(new OutputStream() {
+        @Override
+        public void write(int b) {}
+
+        @Override
+        public void write(byte[] b, int off, int len) {}
+      }));
+      try {
+        BoardGenerator.writeBoardToCSV(file.getAbsolutePath(), load(name));
+      } finally {
+        System.setOut(out);
+      }
+      return file;
+    }
+    return new File(getBoardDirectory(), name + ".csv");
+  }
+
+  /**
+   * Gets the names of every board in the boards directory followed by generated mazes.
+   *
+   * @param generatedSizes The sizes of the mazes, like "100x100"
+   */
+  static String[] allBoardNames(String... generatedSizes) {
+    List<String> names = new ArrayList<>();
+    File[] boardFiles = getBoardDirectory().listFiles(file -> file.getName().endsWith(".csv"));
+    Arrays.sort(boardFiles);
+    for (File boardFile : boardFiles) {
+      names.add(boardFile.getName().substring(0, boardFile.getName().length() - 4));
+    }
+    for (String size : generatedSizes) {
+      names.add(GENERATED_PREFIX + size);
+    }
+    return names.toArray(new String[0]);
+  }
+
+  /**
+   * Benchmarks are run from either the project or the bench module directory.
+   */
+  static File getBoardDirectory() {
+    for (String path : new String[] {"../boards", "./boards"}) {
+      File boardFolder = new File(path);
+      if (boardFolder.isDirectory()) {
+        return boardFolder;
+      }
+    }
+    throw new IllegalStateException("Could not find the boards directory");
+  }
+}
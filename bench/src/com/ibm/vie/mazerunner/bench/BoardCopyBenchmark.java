@@ -0,0 +1,112 @@
+/**
+ * (C) Copyright IBM Corp. 2016,2022. All Rights Reserved. US Government Users Restricted Rights - Use,
+ * duplication or disclosure restricted by GSA ADP Schedule Contract with IBM Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.ibm.vie.mazerunner.bench;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import com.ibm.vie.mazerunner.Location;
+import com.ibm.vie.mazerunner.MapBoard;
+import com.ibm.vie.mazerunner.squares.ISquare;
+
+/**
+ * Measures copying the squares of a board with {@link ISquare#duplicate()}, next to the same copy
+ * made the old way, by reflectively calling each square's copy constructor. Both copy the same
+ * squares, collected once per trial, into a new array the same way, so they only differ in how a
+ * square is copied. {@link #copyBoard()} measures a whole {@link MapBoard#MapBoard(MapBoard)} for
+ * context.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BoardCopyBenchmark {
+
+  @Param({"Level_0_0", "Level_3_10", "Level_8_0", "prim_200x200"})
+  public String boardName;
+
+  private MapBoard board;
+  private ISquare[][] squares;
+
+  @Setup
+  public void loadBoard() {
+    board = BenchmarkBoards.load(boardName);
+    squares = new ISquare[board.getHeight()][board.getWidth()];
+    for (int j = 0; j < board.getHeight(); ++j) {
+      for (int i = 0; i < board.getWidth(); ++i) {
+        squares[j][i] = board.getSquareAt(Location.of(j, i));
+      }
+    }
+  }
+
+  @Benchmark
+  public MapBoard copyBoard() {
+    return new MapBoard(board);
+  }
+
+  @Benchmark
+  public ISquare[][] copySquares() {
+    ISquare[][] copy = new ISquare[squares.length][];
+    for (int j = 0; j < squares.length; ++j) {
+      ISquare[] row = squares[j];
+      copy[j] = new ISquare[row.length];
+      for (int i = 0; i < row.length; ++i) {
+        copy[j][i] = row[i].duplicate();
+      }
+    }
+    return copy;
+  }
+
+  @Benchmark
+  public ISquare[][] copySquaresReflectively() throws ReflectiveOperationException {
+    ISquare[][] copy = new ISquare[squares.length][];
+    for (int j = 0; j < squares.length; ++j) {
+      ISquare[] row = squares[j];
+      copy[j] = new ISquare[row.length];
+      for (int i = 0; i < row.length; ++i) {
+        copy[j][i] = reflectiveCopy(row[i]);
+      }
+    }
+    return copy;
+  }
+
+  private static ISquare reflectiveCopy(ISquare square)
+      throws InstantiationException, IllegalAccessException, InvocationTargetException,
+      NoSuchMethodException {
+    Class<? extends ISquare> classToLoad = square.getClass();
+    return classToLoad.getDeclaredConstructor(classToLoad).newInstance(square);
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    new Runner(new OptionsBuilder().include(BoardCopyBenchmark.class.getSimpleName()).build())
+        .run();
+  }
+}
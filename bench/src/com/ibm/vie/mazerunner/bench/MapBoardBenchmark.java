@@ -0,0 +1,180 @@
+/**
+ * (C) Copyright IBM Corp. 2016,2022. All Rights Reserved. US Government Users Restricted Rights - Use,
+ * duplication or disclosure restricted by GSA ADP Schedule Contract with IBM Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.ibm.vie.mazerunner.bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import com.ibm.vie.mazerunner.IPlayer;
+import com.ibm.vie.mazerunner.Location;
+import com.ibm.vie.mazerunner.MapBoard;
+import com.ibm.vie.mazerunner.Move;
+import com.ibm.vie.mazerunner.SimplePlayer;
+import com.ibm.vie.mazerunner.squares.ISquare;
+import com.ibm.vie.mazerunner.squares.Treasure;
+
+/**
+ * Measures the hot paths of {@link MapBoard}: parsing, copying, moving, listing the unexplored
+ * moves, scoring, and a whole game of {@link SimplePlayer}.
+ *
+ * The @Param list is a quick subset. main runs every board in the boards directory plus generated
+ * mazes of 100x100, 500x500 and 2000x2000 with the GC profiler, which reports bytes allocated per
+ * operation as gc.alloc.rate.norm next to the ops/s of each benchmark.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class MapBoardBenchmark {
+
+  @Param({"Level_0_0", "Level_3_10", "Level_8_0", "prim_100x100"})
+  public String boardName;
+
+  private File boardFile;
+  private MapBoard board;
+
+  @Setup
+  public void loadBoard() throws IOException {
+    boardFile = BenchmarkBoards.csvFile(boardName);
+    board = BenchmarkBoards.load(boardName);
+  }
+
+  /**
+   * A copy of the board the move benchmark walks on. The player steps to a neighbour and
+   * backtracks, and the copy is replaced once its steps run low, which costs a copy every few
+   * hundred moves on the smallest boards and almost never on the generated ones.
+   */
+  @State(Scope.Thread)
+  public static class Walk {
+    private MapBoard template;
+    private MapBoard board;
+    private Move outward;
+    private int reserve;
+
+    @Setup(Level.Iteration)
+    public void start(MapBoardBenchmark benchmark) {
+      template = benchmark.board;
+      board = new MapBoard(template);
+      outward = null;
+      Location start = board.getPlayerLocation();
+      for (Move mv : new Move[] {Move.NORTH, Move.SOUTH, Move.EAST, Move.WEST}) {
+        Location l = mv.apply(start);
+        if (l.getRow() < 0 || l.getRow() >= board.getHeight() || l.getCol() < 0
+            || l.getCol() >= board.getWidth()) {
+          continue;
+        }
+        // The cheapest neighbour that does not end the game: walls and lava use up every step,
+        // and taking the last treasure would finish it
+        ISquare square = board.getSquareAt(l);
+        if (!square.isValidMove(board) || square instanceof Treasure
+            || square.getStepCost() >= board.getMaxSteps()) {
+          continue;
+        }
+        int cost = square.getStepCost() + board.getSquareAt(start).getStepCost();
+        if (outward == null || cost < reserve) {
+          outward = mv;
+          reserve = cost;
+        }
+      }
+      if (outward == null) {
+        throw new IllegalStateException(
+            benchmark.boardName + " has no square to step to from the start");
+      }
+    }
+
+    Location step() {
+      if (board.getRemainingSteps() <= reserve || board.isComplete()) {
+        board = new MapBoard(template);
+      }
+      board.move(outward);
+      board.move(Move.BACKTRACK);
+      return board.getPlayerLocation();
+    }
+  }
+
+  @Benchmark
+  public MapBoard parseBoard() {
+    return MapBoard.parseBoard(boardFile.getAbsolutePath());
+  }
+
+  @Benchmark
+  public MapBoard copyBoard() {
+    return new MapBoard(board);
+  }
+
+  /**
+   * One move out and one back.
+   */
+  @Benchmark
+  public Location moveAndBacktrack(Walk walk) {
+    return walk.step();
+  }
+
+  @Benchmark
+  public List<Move> getUnexploredMoves() {
+    return board.getUnexploredMoves();
+  }
+
+  @Benchmark
+  public int getScore() {
+    return board.getScore();
+  }
+
+  /**
+   * A whole game on a fresh copy of the board, including the copy and analyzeBoard(). An illegal
+   * move ends the game, as it does in the test harness. gameCompleted() is left out, SimplePlayer
+   * prints the whole board there.
+   */
+  @Benchmark
+  public int simplePlayerGame() {
+    MapBoard game = new MapBoard(board);
+    IPlayer player = new SimplePlayer();
+    player.analyzeBoard(new MapBoard(game));
+    try {
+      while (!game.isComplete()) {
+        game.move(player.selectMove(game.snapshot()));
+      }
+      return game.getScore();
+    } catch (RuntimeException e) {
+      return 0;
+    }
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    new Runner(new OptionsBuilder().include(MapBoardBenchmark.class.getSimpleName())
+        .param("boardName", BenchmarkBoards.allBoardNames("100x100", "500x500", "2000x2000"))
+        .addProfiler(GCProfiler.class).build()).run();
+  }
+}
@@ -0,0 +1,134 @@
+/**
+ * (C) Copyright IBM Corp. 2016,2022. All Rights Reserved. US Government Users Restricted Rights - Use,
+ * duplication or disclosure restricted by GSA ADP Schedule Contract with IBM Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.ibm.vie.mazerunner.bench;
+
+import java.awt.Color;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import com.ibm.vie.mazerunner.Location;
+import com.ibm.vie.mazerunner.MapBoard;
+import com.ibm.vie.mazerunner.squares.ISquare;
+import com.ibm.vie.mazerunner.squares.SquarePalette;
+import com.ibm.vie.mazerunner.squares.Treasure;
+
+/**
+ * Measures the allocations of creating and coloring squares, next to the same work done the old
+ * way, when every square held its own array of four step colors and a treasure allocated a new
+ * color each time it was painted. Run it with the GC profiler (as main does) and compare
+ * gc.alloc.rate.norm: coloring a board with the shared palette should allocate nothing, and a board
+ * copy should allocate no more than the squares and their locations.
+ *
+ * The squares are collected once per trial, so the coloring cases only differ in how a color is
+ * found.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SquareAllocationBenchmark {
+
+  @Param({"Level_3_10", "Level_8_0", "prim_200x200"})
+  public String boardName;
+
+  private MapBoard board;
+  private ISquare[][] squares;
+  private Color[][][] stepColors;
+
+  @Setup
+  public void loadBoard() {
+    board = BenchmarkBoards.load(boardName);
+    squares = new ISquare[board.getHeight()][board.getWidth()];
+    stepColors = new Color[board.getHeight()][board.getWidth()][];
+    for (int j = 0; j < board.getHeight(); ++j) {
+      for (int i = 0; i < board.getWidth(); ++i) {
+        squares[j][i] = board.getSquareAt(Location.of(j, i));
+        stepColors[j][i] = newStepColors();
+      }
+    }
+  }
+
+  @Benchmark
+  public MapBoard copyBoard() {
+    return new MapBoard(board);
+  }
+
+  @Benchmark
+  public Object[] copyBoardWithSquareColors() {
+    Color[][][] colors = new Color[squares.length][][];
+    for (int j = 0; j < squares.length; ++j) {
+      colors[j] = new Color[squares[j].length][];
+      for (int i = 0; i < squares[j].length; ++i) {
+        colors[j][i] = newStepColors();
+      }
+    }
+    return new Object[] {new MapBoard(board), colors};
+  }
+
+  @Benchmark
+  public void colorSquares(Blackhole bh) {
+    for (ISquare[] row : squares) {
+      for (ISquare square : row) {
+        bh.consume(SquarePalette.getBackground(square));
+      }
+    }
+  }
+
+  @Benchmark
+  public void colorSquaresWithSquareColors(Blackhole bh) {
+    for (int j = 0; j < squares.length; ++j) {
+      for (int i = 0; i < squares[j].length; ++i) {
+        ISquare square = squares[j][i];
+        Color[] colors = stepColors[j][i];
+        if (square instanceof Treasure) {
+          bh.consume(((Treasure) square).spaceHasTreasure() ? new Color(22, 144, 42)
+              : Color.ORANGE);
+        } else {
+          bh.consume(colors[Math.min(colors.length - 1, square.getStepCount())]);
+        }
+      }
+    }
+  }
+
+  /**
+   * The colors every square used to allocate in its field initializer.
+   */
+  private static Color[] newStepColors() {
+    return new Color[] {new Color(22, 144, 42), new Color(86, 103, 42), new Color(88, 83, 23),
+        new Color(58, 55, 15)};
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    new Runner(new OptionsBuilder().include(SquareAllocationBenchmark.class.getSimpleName())
+        .addProfiler(GCProfiler.class).build()).run();
+  }
+}
@@ -0,0 +1,231 @@
+/**
+ * (C) Copyright IBM Corp. 2016,2022. All Rights Reserved. US Government Users Restricted Rights - Use,
+ * duplication or disclosure restricted by GSA ADP Schedule Contract with IBM Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.ibm.vie.mazerunner;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import com.ibm.vie.mazerunner.squares.ISquare;
+import com.ibm.vie.mazerunner.squares.Terrain;
+
+/**
+ * Students do not need this. A compact binary form of a board file, much smaller and faster to load
+ * than CSV for large boards.
+ *
+ * <pre>
+ * magic     4 bytes  "TRHB"
+ * version   1 byte   1
+ * flags     1 byte   bit 0 set when the cells are run-length encoded
+ * width     int
+ * height    int
+ * max steps int
+ * cells     one terrain code per cell, row after row, or when run-length encoded a terrain code
+ *           followed by the length of its run as an unsigned LEB128 varint
+ * </pre>
+ *
+ * Ints are big-endian and the terrain codes are those of {@link Terrain#getCode()}. Like a CSV
+ * board, the name of the board is the name of its file.
+ */
+public final class BinaryBoardFile {
+  /**
+   * The file extension of binary boards.
+   */
+  public static final String EXTENSION = ".thb";
+
+  private static final int MAGIC = 0x54524842; // "TRHB"
+  private static final int VERSION = 1;
+  private static final int RUN_LENGTH_ENCODED = 0x01;
+
+  private final int width, height;
+  private final int maxSteps;
+  private final byte[] terrainCodes;
+
+  private BinaryBoardFile(int width, int height, int maxSteps, byte[] terrainCodes) {
+    this.width = width;
+    this.height = height;
+    this.maxSteps = maxSteps;
+    this.terrainCodes = terrainCodes;
+  }
+
+  int getWidth() {
+    return width;
+  }
+
+  int getHeight() {
+    return height;
+  }
+
+  int getMaxSteps() {
+    return maxSteps;
+  }
+
+  byte[] getTerrainCodes() {
+    return terrainCodes;
+  }
+
+  /**
+   * Writes a board to a file, run-length encoding the cells when that makes the file smaller.
+   *
+   * @param path The path of the file to write
+   * @param board The board to write
+   * @throws IOException If the file cannot be written
+   * @throws IllegalArgumentException If the board holds squares that are not built-in squares
+   */
+  public static void write(String path, IBoard board) throws IOException {
+    try (OutputStream out = new BufferedOutputStream(new FileOutputStream(path))) {
+      write(out, board);
+    }
+  }
+
+  /**
+   * Writes a board to a stream, run-length encoding the cells when that makes them smaller.
+   *
+   * @param out The stream to write to, which is not closed
+   * @param board The board to write
+   * @throws IOException If the stream cannot be written
+   * @throws IllegalArgumentException If the board holds squares that are not built-in squares
+   */
+  public static void write(OutputStream out, IBoard board) throws IOException {
+    byte[] codes = terrainCodesOf(board);
+    byte[] runs = encodeRuns(codes);
+    boolean encoded = runs.length < codes.length;
+
+    DataOutputStream data = new DataOutputStream(out);
+    data.writeInt(MAGIC);
+    data.writeByte(VERSION);
+    data.writeByte(encoded ? RUN_LENGTH_ENCODED : 0);
+    data.writeInt(board.getWidth());
+    data.writeInt(board.getHeight());
+    data.writeInt(board.getMaxSteps());
+    data.write(encoded ? runs : codes);
+    data.flush();
+  }
+
+  /**
+   * Reads a board file.
+   *
+   * @param path The path of the file
+   * @return The decoded board
+   * @throws IOException If the file cannot be read or is not a valid binary board
+   */
+  static BinaryBoardFile read(String path) throws IOException {
+    try (InputStream in = new BufferedInputStream(new FileInputStream(path))) {
+      return read(in);
+    }
+  }
+
+  static BinaryBoardFile read(InputStream in) throws IOException {
+    DataInputStream data = new DataInputStream(in);
+    if (data.readInt() != MAGIC) {
+      throw new IOException("Not a binary board file");
+    }
+    int version = data.readUnsignedByte();
+    if (version != VERSION) {
+      throw new IOException("Unsupported binary board version " + version);
+    }
+    int flags = data.readUnsignedByte();
+    int width = data.readInt();
+    int height = data.readInt();
+    int maxSteps = data.readInt();
+    if (width < 0 || height < 0 || (long) width * height > Integer.MAX_VALUE) {
+      throw new IOException("Invalid board size " + width + "x" + height);
+    }
+
+    byte[] codes = new byte[width * height];
+    if ((flags & RUN_LENGTH_ENCODED) != 0) {
+      for (int n = 0; n < codes.length;) {
+        byte code = data.readByte();
+        int length = readVarint(data);
+        if (length > codes.length - n) {
+          throw new IOException("Run of " + length + " overflows the board");
+        }
+        for (int end = n + length; n < end; ++n) {
+          codes[n] = code;
+        }
+      }
+    } else {
+      data.readFully(codes);
+    }
+
+    int terrainCount = Terrain.values().length;
+    for (byte code : codes) {
+      if (code < 0 || code >= terrainCount) {
+        throw new IOException("Invalid terrain code " + code);
+      }
+    }
+    return new BinaryBoardFile(width, height, maxSteps, codes);
+  }
+
+  private static byte[] terrainCodesOf(IBoard board) {
+    int width = board.getWidth();
+    byte[] codes = new byte[width * board.getHeight()];
+    for (int j = 0; j < board.getHeight(); ++j) {
+      for (int i = 0; i < width; ++i) {
+        Location l = Location.of(j, i);
+        ISquare square = board.getSquareAt(l);
+        Terrain t = l.equals(board.getStartingLocation()) ? Terrain.START : Terrain.of(square);
+        if (t == null) {
+          throw new IllegalArgumentException(
+              square.getClass().getName() + " at " + l + " is not a built-in square");
+        }
+        codes[j * width + i] = t.getCode();
+      }
+    }
+    return codes;
+  }
+
+  private static byte[] encodeRuns(byte[] codes) {
+    ByteArrayOutputStream runs = new ByteArrayOutputStream();
+    for (int start = 0; start < codes.length;) {
+      int end = start + 1;
+      while (end < codes.length && codes[end] == codes[start]) {
+        ++end;
+      }
+      runs.write(codes[start]);
+      for (int length = end - start; ; length >>>= 7) {
+        if (length < 0x80) {
+          runs.write(length);
+          break;
+        }
+        runs.write((length & 0x7F) | 0x80);
+      }
+      start = end;
+    }
+    return runs.toByteArray();
+  }
+
+  private static int readVarint(DataInputStream data) throws IOException {
+    int value = 0;
+    for (int shift = 0; shift < 32; shift += 7) {
+      int b = data.readUnsignedByte();
+      value |= (b & 0x7F) << shift;
+      if ((b & 0x80) == 0) {
+        if (value <= 0) {
+          throw new IOException("Invalid run length " + value);
+        }
+        return value;
+      }
+    }
+    throw new IOException("Run length is too long");
+  }
+}
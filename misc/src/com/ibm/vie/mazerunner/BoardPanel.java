@@ -16,133 +16,218 @@
 package com.ibm.vie.mazerunner;
 
 import com.ibm.vie.mazerunner.gui.GameData;
-import com.ibm.vie.mazerunner.gui.LocationPointUtil;
-import com.ibm.vie.mazerunner.squares.*;
+import com.ibm.vie.mazerunner.gui.SpriteAtlas;
 import javax.swing.*;
 
 import java.awt.Graphics;
-import java.awt.GridLayout;
+import java.awt.GraphicsConfiguration;
+import java.awt.Image;
 import java.awt.Point;
 import java.awt.image.BufferedImage;
+import java.awt.image.VolatileImage;
 
+/**
+ * Draws a whole board on one component. The board is rendered into a back buffer the size of the
+ * panel, and only the squares marked dirty with {@link #repaint(int, int)} are redrawn into it, so
+ * every paint after the first is a blit plus the squares a move changed, on any size of board.
+ *
+ * The back buffer is a {@link VolatileImage} when the panel is displayable, so the blit can stay in
+ * video memory, and a plain image otherwise. A volatile buffer that loses its contents is redrawn
+ * in full.
+ *
+ * Square edges are spread over the size of the panel, square i spanning from i * width / columns to
+ * (i + 1) * width / columns, so the board fills the panel even when it does not divide evenly.
+ */
 public class BoardPanel extends JPanel {
+  private static final long serialVersionUID = 1L;
+
+  private IBoard board;
   private int w, h;
 
-  public BoardPanel() {
+  private SpriteAtlas sprites;
 
+  // Back buffer, only touched on the EDT
+  private transient VolatileImage volatileBuffer;
+  private transient BufferedImage imageBuffer;
+  private boolean allDirty;
+  private boolean[] dirty;
+  private int[] dirtySquares;
+  private int dirtyCount;
+
+  public BoardPanel() {
+    setOpaque(true);
   }
 
   public void loadBoard(IBoard board) {
+    this.board = board;
     w = board.getWidth();
     h = board.getHeight();
-    setLayout(new GridLayout(h, w));
-    removeAll();
-    for (int j = 0; j < h; ++j) {
-      for (int i = 0; i < w; ++i) {
-        add(new MapSquarePanel(board, i, j));
-      }
-    }
+    dirty = new boolean[w * h];
+    dirtySquares = new int[w * h];
+    dirtyCount = 0;
+    allDirty = true;
+
+    sprites = GameData.getInstance().getSpriteAtlas();
+
     revalidate();
     repaint();
   }
 
+  /**
+   * Switches to a later state of the loaded board without redrawing anything. The squares that
+   * differ from the state shown so far must then be passed to {@link #repaint(int, int)}.
+   *
+   * @param state The state to draw, which has the size of the loaded board
+   */
+  public void showBoard(IBoard state) {
+    if (state.getWidth() != w || state.getHeight() != h) {
+      throw new IllegalArgumentException("The board state must have the size of the loaded board");
+    }
+    board = state;
+  }
+
+  /**
+   * Redraws every square into the back buffer and repaints the panel.
+   */
+  public void repaintBoard() {
+    allDirty = true;
+    repaint();
+  }
+
+  /**
+   * Redraws one square into the back buffer and repaints it.
+   *
+   * @param row The row of the square
+   * @param col The column of the square
+   */
   public void repaint(int row, int col) {
-    getComponent(row * w + col).repaint();
+    if (board == null || row < 0 || row >= h || col < 0 || col >= w) {
+      return;
+    }
+    int index = row * w + col;
+    if (!dirty[index]) {
+      dirty[index] = true;
+      dirtySquares[dirtyCount++] = index;
+    }
+    int x = columnEdge(col);
+    int y = rowEdge(row);
+    repaint(x, y, columnEdge(col + 1) - x, rowEdge(row + 1) - y);
   }
 
   public void repaint(Point p) {
     repaint(p.y, p.x);
   }
 
-  private class MapSquarePanel extends JComponent {
-    private Point pointLocation;
-    private IBoard board;
-    private final int squareSize = 10;
-    private ISquare square;
-
-    private BufferedImage treeImage;
-    private BufferedImage treasureClosedImage;
-    private BufferedImage treasureOpenImage;
-    private BufferedImage playerStillUpImage;
-    private BufferedImage playerStillDownImage;
-    private BufferedImage playerStillLeftImage;
-    private BufferedImage playerStillRightImage;
-    private BufferedImage grass0Image;
-    private BufferedImage grass1Image;
-    private BufferedImage grass2Image;
-    private BufferedImage grass3Image;
-
-    public MapSquarePanel(IBoard board, int x, int y) {
-      this.pointLocation = new Point(x, y);
-      this.square = board.getSquareAt(new Location(y, x));
-      this.board = board;
-
-      // setPreferredSize(new Dimension(squareSize, squareSize));
-      try {
-        setPreferredSize(GameData.getInstance().getSpriteDimension(square.getSpriteName()));
-      } catch (Exception e) {
-        System.err.println("Failed to get sprite dimension for " + square.getSpriteName());
+  private int columnEdge(int col) {
+    return (int) ((long) col * getWidth() / w);
+  }
+
+  private int rowEdge(int row) {
+    return (int) ((long) row * getHeight() / h);
+  }
+
+  @Override
+  public void paintComponent(Graphics g) {
+    if (board == null || w == 0 || h == 0 || getWidth() <= 0 || getHeight() <= 0) {
+      super.paintComponent(g);
+      return;
+    }
+
+    do {
+      Image buffer = validateBuffer();
+      renderDirtySquares(buffer);
+      g.drawImage(buffer, 0, 0, null);
+    } while (volatileBuffer != null && volatileBuffer.contentsLost());
+  }
+
+  /**
+   * Gets a back buffer the size of the panel, marking the whole board dirty when the buffer is new
+   * or has lost its contents.
+   */
+  private Image validateBuffer() {
+    int width = getWidth();
+    int height = getHeight();
+    GraphicsConfiguration gc = getGraphicsConfiguration();
+
+    if (volatileBuffer != null) {
+      int status = volatileBuffer.getWidth() != width || volatileBuffer.getHeight() != height
+          ? VolatileImage.IMAGE_INCOMPATIBLE : volatileBuffer.validate(gc);
+      if (status == VolatileImage.IMAGE_INCOMPATIBLE) {
+        volatileBuffer.flush();
+        volatileBuffer = null;
+      } else if (status == VolatileImage.IMAGE_RESTORED) {
+        allDirty = true;
       }
+    }
+    if (imageBuffer != null
+        && (imageBuffer.getWidth() != width || imageBuffer.getHeight() != height)) {
+      imageBuffer = null;
+    }
 
-      // treeImage = GameData.getInstance().getSprite("Tree");
-      // treasureClosedImage = GameData.getInstance().getSprite("Treasure_closed");
-      // treasureOpenImage = GameData.getInstance().getSprite("Treasure_open");
-      playerStillUpImage = GameData.getInstance().getSprite("Hunter_Stationary_Up");
-      playerStillDownImage = GameData.getInstance().getSprite("Hunter_Stationary_Down");
-      playerStillLeftImage = GameData.getInstance().getSprite("Hunter_Stationary_Left");
-      playerStillRightImage = GameData.getInstance().getSprite("Hunter_Stationary_Right");
-      // grass0Image = GameData.getInstance().getSprite("Grass_0");
-      // grass1Image = GameData.getInstance().getSprite("Grass_1");
-      // grass2Image = GameData.getInstance().getSprite("Grass_2");
-      // grass3Image = GameData.getInstance().getSprite("Grass_3");
+    if (volatileBuffer == null && imageBuffer == null) {
+      // Not displayable (or headless) panels cannot make volatile images
+      volatileBuffer = createVolatileImage(width, height);
+      if (volatileBuffer == null) {
+        imageBuffer = gc == null ? new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB)
+            : gc.createCompatibleImage(width, height);
+      }
+      allDirty = true;
     }
+    return volatileBuffer != null ? volatileBuffer : imageBuffer;
+  }
 
-    public void paintComponent(Graphics g) {
-      ISquare t = board.getSquareAt(LocationPointUtil.toLocation(pointLocation));
-
-      GameData.getInstance().drawSquare(t, g);
-
-      // String type = t.getTypeString();
-      // if (type.equals("Space") || type.equals("Treasure")) {
-      // if (t.getStepCount() == 0) {
-      // g.drawImage(grass0Image, 0, 0, getWidth(), getHeight(), null);
-
-      // } else if (t.getStepCount() == 1) {
-      // g.drawImage(grass1Image, 0, 0, getWidth(), getHeight(), null);
-      // } else if (t.getStepCount() == 2) {
-      // g.drawImage(grass2Image, 0, 0, getWidth(), getHeight(), null);
-      // } else {
-      // g.drawImage(grass3Image, 0, 0, getWidth(), getHeight(), null);
-      // }
-      // if (type.equals("Treasure")) {
-      // if (((Treasure) t).spaceHasTreasure()) {
-      // g.drawImage(treasureClosedImage, 0, 0, getWidth(), getHeight(), null);
-      // } else {
-      // g.drawImage(treasureOpenImage, 0, 0, getWidth(), getHeight(), null);
-      // }
-      // }
-      // } else if (type.equals("Wall") || type.equals("Lava") || type.equals("Water")
-      // || type.equals("Mountain") || type.equals("Trees")
-      // || type.equals("Bushes") || type.equals("Mud") ) {
-      // g.drawImage(treeImage, 0, 0, getWidth(), getHeight(), null);
-      // }
-
-      if (board.getPlayerLocation().equals(LocationPointUtil.toLocation(pointLocation))) {
-        Point curr = GameData.currentPointLocation;
-        Point prev = GameData.previousPointLocation;
-
-        if (curr.x == (prev.x - 1)) { // Determine if moving left
-          g.drawImage(playerStillLeftImage, 0, 0, getWidth(), getHeight(), null);
-        } else if (curr.x == (prev.x + 1)) { // Determine if moving right
-          g.drawImage(playerStillRightImage, 0, 0, getWidth(), getHeight(), null);
-        } else if (curr.y == (prev.y - 1)) { // Determine if moving up
-          g.drawImage(playerStillUpImage, 0, 0, getWidth(), getHeight(), null);
-        } else if (curr.y == (prev.y + 1)) { // Determine if moving down
-          g.drawImage(playerStillDownImage, 0, 0, getWidth(), getHeight(), null);
-        } else { // Likely player stayed still?
-          g.drawImage(playerStillDownImage, 0, 0, getWidth(), getHeight(), null);
+  private void renderDirtySquares(Image buffer) {
+    Graphics g = buffer.getGraphics();
+    try {
+      Location player = board.getPlayerLocation();
+      if (allDirty) {
+        for (int row = 0; row < h; ++row) {
+          for (int col = 0; col < w; ++col) {
+            renderSquare(g, row, col, player);
+          }
+        }
+      } else {
+        for (int i = 0; i < dirtyCount; ++i) {
+          renderSquare(g, dirtySquares[i] / w, dirtySquares[i] % w, player);
         }
       }
+    } finally {
+      g.dispose();
+    }
+
+    for (int i = 0; i < dirtyCount; ++i) {
+      dirty[dirtySquares[i]] = false;
+    }
+    dirtyCount = 0;
+    allDirty = false;
+  }
+
+  private void renderSquare(Graphics g, int row, int col, Location player) {
+    int x = columnEdge(col);
+    int y = rowEdge(row);
+    int width = columnEdge(col + 1) - x;
+    int height = rowEdge(row + 1) - y;
+    sprites.drawSquare(board.getSquareAt(Location.of(row, col)), g, x, y, width, height);
+    if (player.getRow() == row && player.getCol() == col) {
+      sprites.drawSprite(getPlayerSprite(), g, x, y, width, height);
+    }
+  }
+
+  /**
+   * The hunter faces the way it last moved.
+   */
+  private SpriteAtlas.Sprite getPlayerSprite() {
+    Point curr = GameData.currentPointLocation;
+    Point prev = GameData.previousPointLocation;
+
+    if (curr.x == (prev.x - 1)) { // Determine if moving left
+      return SpriteAtlas.Sprite.HUNTER_STATIONARY_LEFT;
+    } else if (curr.x == (prev.x + 1)) { // Determine if moving right
+      return SpriteAtlas.Sprite.HUNTER_STATIONARY_RIGHT;
+    } else if (curr.y == (prev.y - 1)) { // Determine if moving up
+      return SpriteAtlas.Sprite.HUNTER_STATIONARY_UP;
+    } else { // Moving down, or likely player stayed still?
+      return SpriteAtlas.Sprite.HUNTER_STATIONARY_DOWN;
     }
   }
 }
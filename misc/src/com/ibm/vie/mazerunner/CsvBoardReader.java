@@ -0,0 +1,227 @@
+/**
+ * (C) Copyright IBM Corp. 2016,2022. All Rights Reserved. US Government Users Restricted Rights - Use,
+ * duplication or disclosure restricted by GSA ADP Schedule Contract with IBM Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.ibm.vie.mazerunner;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import com.ibm.vie.mazerunner.squares.Terrain;
+
+/**
+ * Reads a board CSV file in one pass, decoding every cell straight to its {@link Terrain} code.
+ * Only one byte per cell is kept, so no strings or rows are created however large the board is.
+ *
+ * The last record of the file holds the max steps, every record before it is a row of the board.
+ * Cells follow the rules of the CsvReader the board files were written for: whitespace around a
+ * cell is ignored, a cell may be quoted, empty lines are skipped, and only the first character of a
+ * cell decides its terrain.
+ */
+final class CsvBoardReader {
+  private static final int BUFFER_SIZE = 64 * 1024;
+  private static final byte SPACE = Terrain.SPACE.getCode();
+
+  // Cell states
+  private static final int BEFORE_VALUE = 0; // Skipping whitespace before a value
+  private static final int IN_VALUE = 1; // In an unquoted value
+  private static final int QUOTE_OPENED = 2; // Just after the opening quote
+  private static final int IN_QUOTES = 3; // In a quoted value
+  private static final int QUOTE_IN_QUOTES = 4; // After a quote in a quoted value
+  private static final int AFTER_QUOTES = 5; // After the closing quote, ignored up to the delimiter
+
+  private int width;
+  private int maxSteps = 100;
+
+  // Cell codes of every record, one record after the other
+  private byte[] cells = new byte[BUFFER_SIZE];
+  private int cellCount;
+  // Start of each record in cells, with one extra entry for the end of the last record
+  private int[] recordStarts = new int[256];
+  private int recordCount;
+
+  // The first value of the latest record that has one, the max steps if it is the last record
+  private final StringBuilder firstValue = new StringBuilder();
+  private int firstValueRecord = -1;
+  private boolean firstValueQuoted;
+
+  private CsvBoardReader() {}
+
+  /**
+   * Reads a board file.
+   *
+   * @param path The path of the CSV file
+   * @return The decoded board
+   * @throws IOException If the file cannot be read
+   * @throws NumberFormatException If the last record does not start with the max steps
+   */
+  static CsvBoardReader read(String path) throws IOException {
+    CsvBoardReader reader = new CsvBoardReader();
+    try (InputStream in = new FileInputStream(path)) {
+      reader.parse(in);
+    }
+    return reader;
+  }
+
+  /**
+   * @return The number of columns of the board
+   */
+  int getWidth() {
+    return width;
+  }
+
+  /**
+   * @return The number of rows of the board, which excludes the max steps record
+   */
+  int getHeight() {
+    return Math.max(0, recordCount - 1);
+  }
+
+  /**
+   * @return The max steps from the last record, 100 if the file is empty
+   */
+  int getMaxSteps() {
+    return maxSteps;
+  }
+
+  /**
+   * Gets the terrain of every cell. Cells past the end of a short row are spaces.
+   *
+   * @return The {@link Terrain#getCode() terrain code} of every cell, row after row
+   */
+  byte[] getTerrainCodes() {
+    int height = getHeight();
+    byte[] codes = new byte[width * height];
+    Arrays.fill(codes, SPACE);
+    for (int row = 0; row < height; ++row) {
+      int length = Math.min(width, recordStarts[row + 1] - recordStarts[row]);
+      System.arraycopy(cells, recordStarts[row], codes, row * width, length);
+    }
+    return codes;
+  }
+
+  private void parse(InputStream in) throws IOException {
+    byte[] buffer = new byte[BUFFER_SIZE];
+    int state = BEFORE_VALUE;
+    boolean recordStarted = false;
+    int firstChar = -1;
+
+    for (int length = in.read(buffer); length >= 0; length = in.read(buffer)) {
+      for (int n = 0; n < length; ++n) {
+        char c = (char) (buffer[n] & 0xFF);
+
+        if (state == IN_QUOTES || state == QUOTE_OPENED) {
+          if (c == '"') {
+            state = QUOTE_IN_QUOTES;
+          } else {
+            if (state == QUOTE_OPENED) {
+              firstChar = c;
+              startValue(true);
+            }
+            captureFirstValue(c);
+            state = IN_QUOTES;
+          }
+          continue; // Delimiters and line breaks are part of a quoted value
+        }
+        if (state == QUOTE_IN_QUOTES) {
+          if (c == '"') { // An escaped quote
+            if (firstChar < 0) {
+              firstChar = c;
+              startValue(true);
+            }
+            captureFirstValue(c);
+            state = IN_QUOTES;
+            continue;
+          }
+          state = AFTER_QUOTES;
+        }
+
+        if (c == ',') {
+          endValue(firstChar);
+          firstChar = -1;
+          state = BEFORE_VALUE;
+          recordStarted = true;
+        } else if (c == '\n' || c == '\r') {
+          if (recordStarted) { // Empty lines are not records
+            endValue(firstChar);
+            endRecord();
+          }
+          firstChar = -1;
+          state = BEFORE_VALUE;
+          recordStarted = false;
+        } else {
+          recordStarted = true;
+          if (state == BEFORE_VALUE) {
+            if (c == '"') {
+              state = QUOTE_OPENED;
+            } else if (c != ' ' && c != '\t') {
+              firstChar = c;
+              startValue(false);
+              captureFirstValue(c);
+              state = IN_VALUE;
+            }
+          } else if (state == IN_VALUE) {
+            captureFirstValue(c);
+          }
+        }
+      }
+    }
+    if (recordStarted) {
+      endValue(firstChar);
+      endRecord();
+    }
+
+    if (recordCount > 0) {
+      String value = firstValueRecord == recordCount - 1 ? firstValue.toString() : "";
+      // Whitespace around an unquoted value is not part of it, whitespace in quotes is
+      maxSteps = Integer.parseInt(firstValueQuoted ? value : value.trim());
+    }
+  }
+
+  private void startValue(boolean quoted) {
+    if (cellCount == recordStarts[recordCount]) {
+      firstValueQuoted = quoted;
+    }
+  }
+
+  private void captureFirstValue(char c) {
+    if (cellCount == recordStarts[recordCount]) {
+      if (firstValueRecord != recordCount) {
+        firstValue.setLength(0);
+        firstValueRecord = recordCount;
+      }
+      firstValue.append(c);
+    }
+  }
+
+  private void endValue(int firstChar) {
+    if (cellCount == cells.length) {
+      cells = Arrays.copyOf(cells, cells.length * 2);
+    }
+    cells[cellCount++] = firstChar < 0 ? SPACE : Terrain.fromCsvCode((char) firstChar).getCode();
+  }
+
+  private void endRecord() {
+    // The width comes from every record but the first, including the max steps record, which is
+    // what the original CsvReader parser measured
+    if (recordCount > 0) {
+      width = Math.max(width, cellCount - recordStarts[recordCount]);
+    }
+    if (recordCount + 2 > recordStarts.length) {
+      recordStarts = Arrays.copyOf(recordStarts, recordStarts.length * 2);
+    }
+    recordStarts[++recordCount] = cellCount;
+  }
+}
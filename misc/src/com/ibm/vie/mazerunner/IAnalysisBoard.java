@@ -31,4 +31,20 @@ public interface IAnalysisBoard extends IBoard {
    * @param mv the move to make
    */
   public void move(Move mv);
+
+  /**
+   * Gets the cheapest paths between squares of this board, taking the step cost of every square
+   * into account. Use it to plan a route during the analyze phase instead of writing your own path
+   * finding.
+   * 
+   * The boards handed to players return the same instance on every call. This default cannot
+   * remember one, so it searches from scratch with a new instance each time; implementations should
+   * keep theirs.
+   * 
+   * @return The shortest paths of this board
+   * @see ShortestPaths
+   */
+  public default ShortestPaths getShortestPaths() {
+    return new ShortestPaths(this);
+  }
 }
@@ -15,8 +15,6 @@
 
 package com.ibm.vie.mazerunner;
 
-import java.util.Objects;
-
 /**
  * Represents an immutable row and column location.
  *
@@ -38,6 +36,11 @@ import java.util.Objects;
  *
  */
 public class Location {
+  // Rows and columns below this are interned by of(int, int). The cache is never emptied, so it
+  // is kept to the sizes boards are played on: at most 64K locations, about 1.5 MB.
+  private static final int CACHE_LIMIT = 256;
+  private static final Location[][] CACHE = new Location[CACHE_LIMIT][];
+
   final int row;
   final int col;
 
@@ -52,6 +55,50 @@ public class Location {
     this.col = col;
   }
 
+  /**
+   * Gets the location of a row and column. Unlike the constructor, this hands out one shared
+   * instance per location in the first 256 rows and columns, so it does not allocate once a
+   * location has been seen. Locations further out are allocated on every call, like the
+   * constructor.
+   * 
+   * @param row The row index of the location
+   * @param col The column index of the location
+   * @return The location
+   */
+  public static Location of(int row, int col) {
+    if (row < 0 || col < 0 || row >= CACHE_LIMIT || col >= CACHE_LIMIT) {
+      return new Location(row, col);
+    }
+    Location[] cachedRow = CACHE[row];
+    if (cachedRow != null && col < cachedRow.length) {
+      Location cached = cachedRow[col];
+      if (cached != null) {
+        return cached;
+      }
+    }
+    return intern(row, col);
+  }
+
+  // The lock-free read in of(int, int) may miss a row published by another thread; it then lands
+  // here and sees the row under the lock.
+  private static synchronized Location intern(int row, int col) {
+    Location[] cachedRow = CACHE[row];
+    if (cachedRow == null || col >= cachedRow.length) {
+      int length = Math.min(CACHE_LIMIT, Math.max(16, Integer.highestOneBit(col) << 1));
+      Location[] grown = new Location[length];
+      int start = 0;
+      if (cachedRow != null) {
+        System.arraycopy(cachedRow, 0, grown, 0, cachedRow.length);
+        start = cachedRow.length;
+      }
+      for (int i = start; i < length; ++i) {
+        grown[i] = new Location(row, i);
+      }
+      CACHE[row] = cachedRow = grown;
+    }
+    return cachedRow[col];
+  }
+
   @Override
   public boolean equals(Object o) {
     if (this == o) {
@@ -84,7 +131,8 @@ public class Location {
 
   @Override
   public int hashCode() {
-    return Objects.hash(this.row, this.col);
+    // Same value as Objects.hash(row, col), without boxing into a varargs array
+    return 31 * (31 + this.row) + this.col;
   }
 
   public String toString() {
@@ -18,24 +18,14 @@ package com.ibm.vie.mazerunner;
 import java.io.IOException;
 import java.io.UncheckedIOException;
 import java.util.ArrayList;
-import java.util.HashSet;
-import java.util.LinkedHashSet;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Random;
-import java.util.Set;
 import java.util.Stack;
-import com.csvreader.CsvReader;
-import com.ibm.vie.mazerunner.squares.Bushes;
 import com.ibm.vie.mazerunner.squares.ISquare;
-import com.ibm.vie.mazerunner.squares.Lava;
-import com.ibm.vie.mazerunner.squares.Mountain;
-import com.ibm.vie.mazerunner.squares.Mud;
 import com.ibm.vie.mazerunner.squares.Space;
+import com.ibm.vie.mazerunner.squares.Terrain;
 import com.ibm.vie.mazerunner.squares.Treasure;
-import com.ibm.vie.mazerunner.squares.Trees;
 import com.ibm.vie.mazerunner.squares.Wall;
-import com.ibm.vie.mazerunner.squares.Water;
 
 public class MapBoard implements IAnalysisBoard {
 
@@ -54,6 +44,20 @@ public class MapBoard implements IAnalysisBoard {
 
   private Stack<Move> moveHistory;
 
+  // Step costs never change, so this is shared by copies of the board. Loaded, generated and
+  // unpacked boards start without one, so the searches of one game are not handed to the next.
+  private ShortestPaths shortestPaths;
+
+  // Copy-on-write bookkeeping for snapshots. A row or square belongs to this board alone when its
+  // generation matches the current one, otherwise it may still be referenced by a snapshot.
+  private MapBoardSnapshot lastSnapshot;
+  private int generation;
+  private int[] rowGeneration;
+  private int[] squareGeneration;
+  private boolean treasuresShared;
+  // Squares that are not a Space cannot tell a snapshot from the board, they are never shared
+  private boolean unguardedSquares;
+
   private MapBoard(String boardName, int w, int h, int max) {
     name = boardName;
     width = w;
@@ -93,102 +97,111 @@ public class MapBoard implements IAnalysisBoard {
       }
     }
     initialTreasureCount = otherBoard.initialTreasureCount;
+    shortestPaths = otherBoard.shortestPaths;
+  }
+
+  static MapBoard unpack(PackedBoard packed) {
+    MapBoard board = new MapBoard(packed.getName(), packed.getWidth(), packed.getHeight(),
+        packed.getMaxSteps());
+    board.remainingSteps = packed.getRemainingSteps();
+    board.playerLocation = packed.getPlayerLocation();
+    board.startingLocation = packed.getStartingLocation();
+    board.moveHistory.addAll(packed.getMoveHistory());
+
+    for (int j = 0; j < board.height; ++j) {
+      for (int i = 0; i < board.width; ++i) {
+        board.boardState[j][i] = packed.getSquareAt(Location.of(j, i));
+        if (board.boardState[j][i] instanceof Treasure
+            && ((Treasure) board.boardState[j][i]).spaceHasTreasure()) {
+          board.treasures.add((Treasure) board.boardState[j][i]);
+        }
+      }
+    }
+    board.initialTreasureCount = packed.getRemainingTreasureCount()
+        + packed.getObtainedTreasureCount();
+    return board;
+  }
+
+  List<Move> getMoveHistory() {
+    return moveHistory;
   }
 
   public static MapBoard parseBoard(String boardConfig) {
     try {
-      CsvReader csvr = new CsvReader(boardConfig);
-
-      int w = 0;
-      int h = 0;
-      int max_steps = 100;
-
-      List<String[]> records = new ArrayList<>();
-
-      // Pre-scan
-      boolean hasMore = csvr.readRecord();
-      String[] vals;
-      while (hasMore) {
-        vals = csvr.getValues();
-        hasMore = csvr.readRecord();
-        if (hasMore) {
-          // Not the last record, this is map data.
-          w = Math.max(w, csvr.getColumnCount());
-          records.add(vals);
+      CsvBoardReader csv = CsvBoardReader.read(boardConfig);
+      return build(new java.io.File(boardConfig).getName(), csv.getWidth(), csv.getHeight(),
+          csv.getMaxSteps(), csv.getTerrainCodes());
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Loads a board file in either format, binary when its name ends with
+   * {@link BinaryBoardFile#EXTENSION} and CSV otherwise.
+   *
+   * @param boardFile The path of the board file
+   * @return The board
+   */
+  public static MapBoard loadBoard(String boardFile) {
+    if (boardFile.toLowerCase().endsWith(BinaryBoardFile.EXTENSION)) {
+      return parseBinaryBoard(boardFile);
+    }
+    return parseBoard(boardFile);
+  }
+
+  /**
+   * Loads a board saved in the binary format of {@link BinaryBoardFile}.
+   *
+   * @param boardFile The path of the board file
+   * @return The board
+   */
+  public static MapBoard parseBinaryBoard(String boardFile) {
+    try {
+      BinaryBoardFile file = BinaryBoardFile.read(boardFile);
+      return build(new java.io.File(boardFile).getName(), file.getWidth(), file.getHeight(),
+          file.getMaxSteps(), file.getTerrainCodes());
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Creates a board from the terrain code of every square, row after row.
+   */
+  private static MapBoard build(String boardName, int w, int h, int maxSteps, byte[] codes) {
+    MapBoard board = new MapBoard(boardName, w, h, maxSteps);
+
+    for (int j = 0; j < h; ++j) {
+      for (int i = 0; i < w; ++i) {
+        Terrain t;
+        if (j == 0 || j == h - 1 || i == 0 || i == w - 1) { // Bounding square, always walls
+          t = Terrain.WALL;
         } else {
-          // This was the last record, lets pull meta data from it
-          if (vals.length > 0) {
-            max_steps = Integer.parseInt(vals[0]);
-          }
+          t = Terrain.fromCode(codes[j * w + i]);
         }
-      }
-      h = records.size();
-
-      String boardName = new java.io.File(boardConfig).getName();
-      MapBoard board = new MapBoard(boardName, w, h, max_steps);
-
-      // Process the data
-      char c;
-      for (int j = 0; j < h; ++j) {
-        vals = records.get(j);
-        for (int i = 0; i < w; ++i) {
-          if (j == 0 || j == h - 1 || i == 0 || i == w - 1) { // Bounding square, always walls
-            board.boardState[j][i] = new Wall(j, i);
-          } else if (i < vals.length && vals[i].length() > 0) {
-            c = vals[i].charAt(0);
-            switch (c) {
-              case '#':
-              case 'W':
-                board.boardState[j][i] = new Wall(j, i);
-                break;
-              case 'T':
-                board.treasures.add((Treasure) (board.boardState[j][i] = new Treasure(j, i)));
-                break;
-              case 'w':
-                board.boardState[j][i] = new Water(j, i);
-                break;
-              case 'B':
-                board.boardState[j][i] = new Bushes(j, i);
-                break;
-              case 't':
-                board.boardState[j][i] = new Trees(j, i);
-                break;
-              case 'M':
-                board.boardState[j][i] = new Mountain(j, i);
-                break;
-              case 'L':
-                board.boardState[j][i] = new Lava(j, i);
-                break;
-              case 'm':
-                board.boardState[j][i] = new Mud(j, i);
-                break;
-              case 'P':
-                board.playerLocation = new Location(j, i);
-                board.boardState[j][i] = Space.createPlayerStartSpace(j, i);
-                board.startingLocation = new Location(j, i);
-                break;
-              default:
-                board.boardState[j][i] = new Space(j, i);
-            }
-          } else {
-            board.boardState[j][i] = new Space(j, i);
-          }
-        }
-      }
 
-      if (board.playerLocation == null) {
-        throw new RuntimeException("Invalid board: missing [P]layer space");
+        board.boardState[j][i] = t.createSquare(j, i);
+        if (t == Terrain.TREASURE) {
+          board.treasures.add((Treasure) board.boardState[j][i]);
+        } else if (t == Terrain.START) {
+          board.playerLocation = Location.of(j, i);
+          board.startingLocation = board.playerLocation;
+        }
       }
+    }
 
-      if (board.treasures.size() == 0) {
-        throw new RuntimeException("Invalid board: At least one [T]reasure space is required.");
-      }
+    if (board.playerLocation == null) {
+      throw new RuntimeException("Invalid board: missing [P]layer space");
+    }
 
-      board.initialTreasureCount = board.treasures.size();
-      return board;
-    } catch (IOException e) {
-      throw new UncheckedIOException(e);
+    if (board.treasures.size() == 0) {
+      throw new RuntimeException("Invalid board: At least one [T]reasure space is required.");
     }
+
+    // The score is counted against the initial treasures
+    board.initialTreasureCount = board.treasures.size();
+    return board;
   }
 
   @Override
@@ -211,7 +224,7 @@ public class MapBoard implements IAnalysisBoard {
 
     Location np = mv.apply(playerLocation);
 
-    ISquare dest = getSquareAt(np);
+    ISquare dest = ownSquareAt(np);
     remainingSteps -= dest.getStepCost();
 
     if (remainingSteps < 0) {
@@ -227,30 +240,122 @@ public class MapBoard implements IAnalysisBoard {
     }
   }
 
-  private boolean isSquareUnexplored(ISquare spc) {
-    return spc.isValidMove(this) && spc.getStepCount() == 0;
+  /**
+   * Takes a read-only snapshot of the board as it is now. The snapshot shares its squares with this
+   * board, which copies a square before changing it, so taking one does not copy the board.
+   * Repeated calls without a move in between return the same snapshot.
+   *
+   * @return An immutable view of the current state of the board
+   */
+  public MapBoardSnapshot snapshot() {
+    if (lastSnapshot == null) {
+      if (squareGeneration == null) {
+        rowGeneration = new int[height];
+        squareGeneration = new int[height * width];
+        unguardedSquares = hasUnguardedSquares();
+      }
+      ++generation;
+      treasuresShared = true;
+      lastSnapshot = new MapBoardSnapshot(this, snapshotState(), treasures);
+    }
+    return lastSnapshot;
   }
 
-  @Override
-  public List<Move> getUnexploredMoves() {
+  /**
+   * Gets the squares a snapshot sees, copying the ones that would not refuse to be changed through
+   * the snapshot.
+   */
+  private ISquare[][] snapshotState() {
+    ISquare[][] state = boardState.clone();
+    if (unguardedSquares) {
+      for (int j = 0; j < height; ++j) {
+        for (int i = 0; i < width; ++i) {
+          if (!(state[j][i] instanceof Space)) {
+            if (state[j] == boardState[j]) {
+              state[j] = state[j].clone();
+            }
+            state[j][i] = state[j][i].duplicate();
+          }
+        }
+      }
+    }
+    return state;
+  }
+
+  private boolean hasUnguardedSquares() {
+    for (ISquare[] row : boardState) {
+      for (ISquare square : row) {
+        if (!(square instanceof Space)) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Gets a square that is safe to change, copying it away from any snapshot still using it.
+   */
+  private ISquare ownSquareAt(Location l) {
+    lastSnapshot = null;
+    int row = l.getRow();
+    int col = l.getCol();
+    if (squareGeneration != null && squareGeneration[row * width + col] != generation) {
+      if (rowGeneration[row] != generation) {
+        boardState[row] = boardState[row].clone();
+        rowGeneration[row] = generation;
+      }
+      boardState[row][col] = boardState[row][col].duplicate();
+      squareGeneration[row * width + col] = generation;
+    }
+    return boardState[row][col];
+  }
+
+  private static boolean isSquareUnexplored(IBoard board, ISquare spc) {
+    return spc.isValidMove(board) && spc.getStepCount() == 0;
+  }
+
+  static List<Move> findUnexploredMoves(IBoard board) {
     List<Move> moves = new ArrayList<>(4);
+    Location playerLocation = board.getPlayerLocation();
 
-    if (isSquareUnexplored(getSquareAt(Move.NORTH.apply(playerLocation)))) {
+    if (isSquareUnexplored(board, board.getSquareAt(Move.NORTH.apply(playerLocation)))) {
       moves.add(Move.NORTH);
     }
-    if (isSquareUnexplored(getSquareAt(Move.SOUTH.apply(playerLocation)))) {
+    if (isSquareUnexplored(board, board.getSquareAt(Move.SOUTH.apply(playerLocation)))) {
       moves.add(Move.SOUTH);
     }
-    if (isSquareUnexplored(getSquareAt(Move.EAST.apply(playerLocation)))) {
+    if (isSquareUnexplored(board, board.getSquareAt(Move.EAST.apply(playerLocation)))) {
       moves.add(Move.EAST);
     }
-    if (isSquareUnexplored(getSquareAt(Move.WEST.apply(playerLocation)))) {
+    if (isSquareUnexplored(board, board.getSquareAt(Move.WEST.apply(playerLocation)))) {
       moves.add(Move.WEST);
     }
 
     return moves;
   }
 
+  static int computeScore(IBoard board) {
+    if (board.getRemainingTreasureCount() == 0) { // Got all the treasure
+      return board.getRemainingSteps() + board.getObtainedTreasureCount() * 100 + 500;
+    } else {
+      return board.getObtainedTreasureCount() * 100;
+    }
+  }
+
+  @Override
+  public List<Move> getUnexploredMoves() {
+    return findUnexploredMoves(this);
+  }
+
+  @Override
+  public ShortestPaths getShortestPaths() {
+    if (shortestPaths == null) {
+      shortestPaths = new ShortestPaths(this);
+    }
+    return shortestPaths;
+  }
+
   @Override
   public Location getPlayerLocation() {
     return playerLocation;
@@ -262,6 +367,11 @@ public class MapBoard implements IAnalysisBoard {
   }
 
   public void removeTreasure(Treasure t) {
+    lastSnapshot = null;
+    if (treasuresShared) {
+      treasures = new ArrayList<>(treasures);
+      treasuresShared = false;
+    }
     treasures.remove(t);
   }
 
@@ -281,8 +391,11 @@ public class MapBoard implements IAnalysisBoard {
     return initialTreasureCount - treasures.size();
   }
 
+  /**
+   * Final, squares trust a MapBoard to report the squares it really holds.
+   */
   @Override
-  public ISquare getSquareAt(Location l) {
+  public final ISquare getSquareAt(Location l) {
     return boardState[l.getRow()][l.getCol()];
   }
 
@@ -313,26 +426,22 @@ public class MapBoard implements IAnalysisBoard {
 
   @Override
   public int getScore() {
-    if (getRemainingTreasureCount() == 0) { // Got all the treasure
-      return getRemainingSteps() + getObtainedTreasureCount() * 100 + 500;
-    } else {
-      return getObtainedTreasureCount() * 100;
-    }
+    return computeScore(this);
   }
 
-  private static Set<Location> getAdjacentPoints(Location l, int maxx, int maxy) {
-    Set<Location> result = new HashSet<>();
+  private static int getAdjacentPoints(Location l, int maxx, int maxy, Location[] result) {
+    int count = 0;
 
     if (l.getCol() > 1)
-      result.add(new Location(l.getRow(), l.getCol() - 1));
+      result[count++] = Location.of(l.getRow(), l.getCol() - 1);
     if (l.getCol() < maxx - 2)
-      result.add(new Location(l.getRow(), l.getCol() + 1));
+      result[count++] = Location.of(l.getRow(), l.getCol() + 1);
     if (l.getRow() > 1)
-      result.add(new Location(l.getRow() - 1, l.getCol()));
+      result[count++] = Location.of(l.getRow() - 1, l.getCol());
     if (l.getRow() < maxy - 2)
-      result.add(new Location(l.getRow() + 1, l.getCol()));
+      result[count++] = Location.of(l.getRow() + 1, l.getCol());
 
-    return result;
+    return count;
 
   }
 
@@ -344,85 +453,103 @@ public class MapBoard implements IAnalysisBoard {
 
     MapBoard board = new MapBoard(boardName, width, height, max_steps);
 
-    // Create points that might be in the maze
-    // These all start as walls
-    List<Location> locs = new LinkedList<>();
-    for (int w = 1; w < width - 1; w++) {
-      for (int h = 1; h < height - 1; h++) {
-        locs.add(new Location(h, w));
-      }
-    }
-
-    // choose starting point
-    Location startingPoint = locs.get(rnd.nextInt(locs.size()));
+    // choose starting point, any square inside the outer walls might be in the maze
+    Location startingPoint = Location.of(1 + rnd.nextInt(height - 2), 1 + rnd.nextInt(width - 2));
 
-    Set<Location> visitedSquares = new LinkedHashSet<>();
+    // Squares of the maze in the order they were visited
+    List<Location> visitedSquares = new ArrayList<>();
+    boolean[][] visited = new boolean[height][width];
 
     visitedSquares.add(startingPoint);
+    visited[startingPoint.getRow()][startingPoint.getCol()] = true;
 
     // Initialize the Wall List
-    List<Location> wallList = new LinkedList<>();
-
-    wallList.addAll(getAdjacentPoints(startingPoint, width, height));
+    List<Location> wallList = new ArrayList<>();
+    boolean[][] inWallList = new boolean[height][width];
+    Location[] adjacent = new Location[4];
+
+    int adjacentCount = getAdjacentPoints(startingPoint, width, height, adjacent);
+    for (int i = 0; i < adjacentCount; i++) {
+      wallList.add(adjacent[i]);
+      inWallList[adjacent[i].getRow()][adjacent[i].getCol()] = true;
+    }
 
     while (wallList.size() > 0) {
       // Pick a random wall from the list
-      Location randomWall = wallList.get(rnd.nextInt(wallList.size()));
-      Set<Location> adjacent = getAdjacentPoints(randomWall, width, height);
+      int wallIndex = rnd.nextInt(wallList.size());
+      Location randomWall = wallList.get(wallIndex);
+      adjacentCount = getAdjacentPoints(randomWall, width, height, adjacent);
 
 
       int numVisited = 0;
-      for (Location p : adjacent) {
-        if (visitedSquares.contains(p))
+      for (int i = 0; i < adjacentCount; i++) {
+        if (visited[adjacent[i].getRow()][adjacent[i].getCol()])
           numVisited++;
       }
 
       if (numVisited == 1
           && ((wallList.size() <= 4) || (rnd.nextInt(100) > (100 - branchFactor)))) {
         visitedSquares.add(randomWall);
-        for (Location p : adjacent) {
-          if (!visitedSquares.contains(p) && !wallList.contains(p))
+        visited[randomWall.getRow()][randomWall.getCol()] = true;
+        for (int i = 0; i < adjacentCount; i++) {
+          Location p = adjacent[i];
+          if (!visited[p.getRow()][p.getCol()] && !inWallList[p.getRow()][p.getCol()]) {
             wallList.add(p);
+            inWallList[p.getRow()][p.getCol()] = true;
+          }
         }
       }
 
-      wallList.remove(randomWall);
+      // Order does not matter, so fill the hole with the last wall instead of shifting
+      Location last = wallList.remove(wallList.size() - 1);
+      if (wallIndex < wallList.size()) {
+        wallList.set(wallIndex, last);
+      }
+      inWallList[randomWall.getRow()][randomWall.getCol()] = false;
 
     }
 
-    // Choose Treasure Squares and starting square
-    Location[] orderedSquares = new Location[visitedSquares.size()];
-    visitedSquares.toArray(orderedSquares);
-
+    // Choose Treasure Squares and starting square. Backtracking and replays start from
+    // startingLocation, so it is set along with the player.
     board.playerLocation = startingPoint;
+    board.startingLocation = startingPoint;
 
-    Set<Location> treasureSquares = new HashSet<>();
-
+    boolean[][] treasureSquares = new boolean[height][width];
+    int treasureCount = 0;
 
     // make sure the treasure is not on the start square
-    int treasureLocation = orderedSquares.length - 1;
-    while ((treasureSquares.size() < treasures) && (treasureLocation > 0)) {
-      if (!orderedSquares[treasureLocation].equals(board.playerLocation))
-        treasureSquares.add(orderedSquares[treasureLocation]);
+    int treasureLocation = visitedSquares.size() - 1;
+    while ((treasureCount < treasures) && (treasureLocation > 0)) {
+      Location p = visitedSquares.get(treasureLocation);
+      if (!p.equals(board.playerLocation)) {
+        treasureSquares[p.getRow()][p.getCol()] = true;
+        treasureCount++;
+      }
       treasureLocation--;
     }
 
 
+    // w is the column and h the row; squares are built at (h, w) so they match where they are
+    // stored on boards that are not square
     for (int w = 0; w < width; w++) {
       for (int h = 0; h < height; h++) {
-        Location p = new Location(w, h);
-        if (visitedSquares.contains(p) || ((w >= 1 && (h >= 1) && (h < height - 1)
-            && (w < width - 1) && (rnd.nextInt(100) >= (100 - openFactor))))) {
-          if (treasureSquares.contains(p)) {
-            board.boardState[h][w] = new Treasure(p);
+        if (visited[h][w] || ((w >= 1 && (h >= 1) && (h < height - 1) && (w < width - 1)
+            && (rnd.nextInt(100) >= (100 - openFactor))))) {
+          if (treasureSquares[h][w]) {
+            board.boardState[h][w] = new Treasure(h, w);
             board.treasures.add((Treasure) board.boardState[h][w]);
+          } else if (startingPoint.equals(Location.of(h, w))) {
+            // The player stands here, so it counts as stepped on like the 'P' of a board file
+            board.boardState[h][w] = Space.createPlayerStartSpace(h, w);
           } else {
-            board.boardState[h][w] = new Space(p);
+            board.boardState[h][w] = new Space(h, w);
           }
         } else
-          board.boardState[h][w] = new Wall(p);
+          board.boardState[h][w] = new Wall(h, w);
       }
     }
+    // The score is counted against the initial treasures
+    board.initialTreasureCount = board.treasures.size();
     return board;
   }
 }
@@ -0,0 +1,128 @@
+/**
+ * (C) Copyright IBM Corp. 2016,2022. All Rights Reserved. US Government Users Restricted Rights - Use,
+ * duplication or disclosure restricted by GSA ADP Schedule Contract with IBM Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.ibm.vie.mazerunner;
+
+import java.util.Collections;
+import java.util.List;
+import com.ibm.vie.mazerunner.squares.ISquare;
+import com.ibm.vie.mazerunner.squares.Treasure;
+
+/**
+ * An immutable view of a {@link MapBoard} at one point in the game. It is given to
+ * {@link IPlayer#selectMove(IBoard)} and {@link IPlayer#gameCompleted(IBoard)} in place of a full
+ * copy of the board.
+ *
+ * A snapshot shares its squares with the board it was taken from. The board copies a square, and
+ * the row holding it, before changing it, so a snapshot never sees later moves. Squares ignore
+ * {@link ISquare#moveTo(IBoard)} calls from any board but the one holding them, so the player
+ * cannot change the game through a snapshot.
+ *
+ * @see MapBoard#snapshot()
+ */
+public class MapBoardSnapshot implements IBoard {
+  private final String name;
+  private final int width, height;
+  private final int maxSteps;
+  private final int remainingSteps;
+  private final ISquare[][] boardState;
+  private final Location playerLocation;
+  private final Location startingLocation;
+  private final List<Treasure> treasures;
+  private final int obtainedTreasureCount;
+
+  MapBoardSnapshot(MapBoard board, ISquare[][] boardState, List<Treasure> treasures) {
+    this.name = board.getName();
+    this.width = board.getWidth();
+    this.height = board.getHeight();
+    this.maxSteps = board.getMaxSteps();
+    this.remainingSteps = board.getRemainingSteps();
+    this.boardState = boardState;
+    this.playerLocation = board.getPlayerLocation();
+    this.startingLocation = board.getStartingLocation();
+    this.treasures = Collections.unmodifiableList(treasures);
+    this.obtainedTreasureCount = board.getObtainedTreasureCount();
+  }
+
+  @Override
+  public String getName() {
+    return name;
+  }
+
+  @Override
+  public Location getPlayerLocation() {
+    return playerLocation;
+  }
+
+  @Override
+  public Location getStartingLocation() {
+    return startingLocation;
+  }
+
+  @Override
+  public List<Treasure> getTreasures() {
+    return treasures;
+  }
+
+  @Override
+  public int getRemainingTreasureCount() {
+    return treasures.size();
+  }
+
+  @Override
+  public int getObtainedTreasureCount() {
+    return obtainedTreasureCount;
+  }
+
+  @Override
+  public int getMaxSteps() {
+    return maxSteps;
+  }
+
+  @Override
+  public int getRemainingSteps() {
+    return remainingSteps;
+  }
+
+  @Override
+  public ISquare getSquareAt(Location l) {
+    return boardState[l.getRow()][l.getCol()];
+  }
+
+  @Override
+  public int getWidth() {
+    return width;
+  }
+
+  @Override
+  public int getHeight() {
+    return height;
+  }
+
+  @Override
+  public List<Move> getUnexploredMoves() {
+    return MapBoard.findUnexploredMoves(this);
+  }
+
+  @Override
+  public boolean isComplete() {
+    return getRemainingTreasureCount() == 0 || getRemainingSteps() <= 0;
+  }
+
+  @Override
+  public int getScore() {
+    return MapBoard.computeScore(this);
+  }
+}
@@ -25,6 +25,7 @@ import com.ibm.vie.mazerunner.squares.Treasure;
 // The move method is disabled for this object
 public class MapBoardView implements IAnalysisBoard {
   private IBoard board;
+  private ShortestPaths shortestPaths;
 
   public MapBoardView(IBoard board) {
     this.board = board;
@@ -104,4 +105,15 @@ public class MapBoardView implements IAnalysisBoard {
   public Location getStartingLocation() {
     return board.getStartingLocation();
   }
+
+  @Override
+  public ShortestPaths getShortestPaths() {
+    if (board instanceof IAnalysisBoard) {
+      return ((IAnalysisBoard) board).getShortestPaths();
+    }
+    if (shortestPaths == null) {
+      shortestPaths = new ShortestPaths(board);
+    }
+    return shortestPaths;
+  }
 }
@@ -70,12 +70,12 @@ public enum Move {
    * If you attempt to backtrack past the first move/starting square, then there is no move history
    * (bread crumbs) to follow. An Exception will be thrown and the game will end if this happens.
    */
-  BACKTRACK(null, null);
+  BACKTRACK(0, 0);
 
-  private Integer rowChange;
-  private Integer colChange;
+  private final int rowChange;
+  private final int colChange;
 
-  private Move(Integer rowChange, Integer colChange) {
+  private Move(int rowChange, int colChange) {
     this.rowChange = rowChange;
     this.colChange = colChange;
   }
@@ -93,7 +93,7 @@ public enum Move {
       throw new UnsupportedOperationException(
           "BACKTRACK move cannot be applied because it depends on the player's move history.");
     }
-    return new Location(loc.getRow() + this.rowChange, loc.getCol() + this.colChange);
+    return Location.of(loc.getRow() + this.rowChange, loc.getCol() + this.colChange);
   }
 
   /**
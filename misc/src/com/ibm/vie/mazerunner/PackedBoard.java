@@ -0,0 +1,317 @@
+/**
+ * (C) Copyright IBM Corp. 2016,2022. All Rights Reserved. US Government Users Restricted Rights - Use,
+ * duplication or disclosure restricted by GSA ADP Schedule Contract with IBM Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.ibm.vie.mazerunner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import com.ibm.vie.mazerunner.squares.ISquare;
+import com.ibm.vie.mazerunner.squares.Terrain;
+import com.ibm.vie.mazerunner.squares.Treasure;
+
+/**
+ * A board stored in primitive arrays instead of one object per square: a terrain byte and a step
+ * count per square. Squares handed out by {@link #getSquareAt(Location)} are created on demand
+ * from that state and are detached from the board, so changing them has no effect on it.
+ *
+ * This takes a few bytes per square where a {@link MapBoard} holds several objects per square, and
+ * copying one is a copy of its arrays. Only boards made of the built-in squares can be packed.
+ */
+public class PackedBoard implements IAnalysisBoard {
+  // Set on the terrain of a treasure square once its treasure has been obtained
+  private static final byte TREASURE_TAKEN = (byte) 0x80;
+  private static final Move[] MOVES = Move.values();
+
+  private final String name;
+  private final int width, height;
+  private final int maxSteps;
+  private int remainingSteps;
+
+  private final byte[] terrain;
+  private final short[] stepCounts;
+
+  private Location playerLocation;
+  private final Location startingLocation;
+
+  private final int[] treasureSquares;
+  private int remainingTreasureCount;
+
+  private byte[] moveHistory;
+  private int moveHistorySize;
+
+  // Shared by copies of this packed board, created on first use. Neither taken from the board that
+  // was packed nor handed to the boards unpacked from it, so a template never holds searches.
+  private ShortestPaths shortestPaths;
+
+  /**
+   * Packs a board.
+   *
+   * @param board The board to pack
+   * @throws IllegalArgumentException if the board holds squares that are not built-in squares
+   */
+  public PackedBoard(IBoard board) {
+    name = board.getName();
+    width = board.getWidth();
+    height = board.getHeight();
+    maxSteps = board.getMaxSteps();
+    remainingSteps = board.getRemainingSteps();
+    playerLocation = board.getPlayerLocation();
+    startingLocation = board.getStartingLocation();
+
+    terrain = new byte[width * height];
+    stepCounts = new short[width * height];
+    List<Integer> treasures = new ArrayList<>();
+    for (int j = 0; j < height; ++j) {
+      for (int i = 0; i < width; ++i) {
+        ISquare square = board.getSquareAt(Location.of(j, i));
+        Terrain t = Terrain.of(square);
+        if (t == null) {
+          throw new IllegalArgumentException(
+              "Cannot pack a " + square.getClass().getSimpleName() + " square at " + square);
+        }
+        int idx = j * width + i;
+        if (t == Terrain.SPACE && square.getLocation().equals(startingLocation)) {
+          t = Terrain.START;
+        }
+        terrain[idx] = t.getCode();
+        stepCounts[idx] = (short) Math.min(square.getStepCount(), Short.MAX_VALUE);
+        if (t == Terrain.TREASURE) {
+          treasures.add(idx);
+          if (!((Treasure) square).spaceHasTreasure()) {
+            terrain[idx] |= TREASURE_TAKEN;
+          }
+        }
+      }
+    }
+    treasureSquares = treasures.stream().mapToInt(Integer::intValue).toArray();
+    remainingTreasureCount = board.getRemainingTreasureCount();
+
+    List<Move> history = new ArrayList<>();
+    if (board instanceof MapBoard) {
+      history = ((MapBoard) board).getMoveHistory();
+    }
+    moveHistory = new byte[Math.max(16, history.size())];
+    for (Move mv : history) {
+      moveHistory[moveHistorySize++] = (byte) mv.ordinal();
+    }
+  }
+
+  /**
+   * Copies a packed board.
+   *
+   * @param other The board to copy
+   */
+  public PackedBoard(PackedBoard other) {
+    name = other.name;
+    width = other.width;
+    height = other.height;
+    maxSteps = other.maxSteps;
+    remainingSteps = other.remainingSteps;
+    terrain = other.terrain.clone();
+    stepCounts = other.stepCounts.clone();
+    playerLocation = other.playerLocation;
+    startingLocation = other.startingLocation;
+    treasureSquares = other.treasureSquares;
+    remainingTreasureCount = other.remainingTreasureCount;
+    moveHistory = other.moveHistory.clone();
+    moveHistorySize = other.moveHistorySize;
+    shortestPaths = other.shortestPaths;
+  }
+
+  /**
+   * Unpacks this board into a {@link MapBoard} in the same state.
+   *
+   * @return A new MapBoard
+   */
+  public MapBoard toMapBoard() {
+    return MapBoard.unpack(this);
+  }
+
+  /**
+   * Gets the terrain of a square without creating the square.
+   *
+   * @param row The row index of the square
+   * @param col The column index of the square
+   * @return The terrain of the square
+   */
+  public Terrain getTerrainAt(int row, int col) {
+    return Terrain.fromCode(terrain[row * width + col] & ~TREASURE_TAKEN);
+  }
+
+  List<Move> getMoveHistory() {
+    List<Move> history = new ArrayList<>(moveHistorySize);
+    for (int i = 0; i < moveHistorySize; ++i) {
+      history.add(MOVES[moveHistory[i]]);
+    }
+    return history;
+  }
+
+  /**
+   * Moves the player the way {@link MapBoard#move(Move)} does. An illegal move throws before the
+   * board changes, so replaying untrusted moves cannot leave it half moved.
+   *
+   * @param mv The move to make
+   * @throws RuntimeException If the game is complete or the move would leave the board
+   * @throws IllegalBackTrackException If there is no move to backtrack
+   */
+  @Override
+  public void move(Move mv) {
+    if (isComplete()) {
+      throw new RuntimeException("Cannot move, this board is complete. Remaining Treasures = "
+          + remainingTreasureCount + ", remaining steps = " + getRemainingSteps());
+    }
+
+    boolean backtrack = mv == Move.BACKTRACK;
+    if (backtrack) {
+      if (moveHistorySize == 0) {
+        throw new IllegalBackTrackException();
+      }
+      mv = MOVES[moveHistory[moveHistorySize - 1]].inverse()
+          .orElseThrow(() -> new UnsupportedOperationException("Move in history had no inverse!"));
+    }
+
+    Location np = mv.apply(playerLocation);
+    if (np.getRow() < 0 || np.getRow() >= height || np.getCol() < 0 || np.getCol() >= width) {
+      throw new RuntimeException("Illegal " + mv + " to " + np + " from " + playerLocation
+          + ", it leaves the board");
+    }
+
+    if (backtrack) {
+      --moveHistorySize;
+    } else {
+      if (moveHistorySize == moveHistory.length) {
+        moveHistory = Arrays.copyOf(moveHistory, moveHistorySize * 2);
+      }
+      moveHistory[moveHistorySize++] = (byte) mv.ordinal();
+    }
+
+    int idx = np.getRow() * width + np.getCol();
+
+    remainingSteps -= getTerrainAt(np.getRow(), np.getCol()).getStepCost();
+    if (remainingSteps < 0) {
+      remainingSteps = 0;
+    }
+
+    if (stepCounts[idx] < Short.MAX_VALUE) {
+      ++stepCounts[idx];
+    }
+    if (terrain[idx] == Terrain.TREASURE.getCode()) {
+      terrain[idx] |= TREASURE_TAKEN;
+      --remainingTreasureCount;
+    }
+    playerLocation = np;
+  }
+
+  @Override
+  public String getName() {
+    return name;
+  }
+
+  @Override
+  public Location getPlayerLocation() {
+    return playerLocation;
+  }
+
+  @Override
+  public Location getStartingLocation() {
+    return startingLocation;
+  }
+
+  @Override
+  public List<Treasure> getTreasures() {
+    List<Treasure> treasures = new ArrayList<>(remainingTreasureCount);
+    for (int idx : treasureSquares) {
+      if (terrain[idx] == Terrain.TREASURE.getCode()) {
+        treasures.add((Treasure) createSquare(idx));
+      }
+    }
+    return treasures;
+  }
+
+  @Override
+  public int getRemainingTreasureCount() {
+    return remainingTreasureCount;
+  }
+
+  @Override
+  public int getObtainedTreasureCount() {
+    return treasureSquares.length - remainingTreasureCount;
+  }
+
+  @Override
+  public int getMaxSteps() {
+    return maxSteps;
+  }
+
+  @Override
+  public int getRemainingSteps() {
+    return remainingSteps;
+  }
+
+  @Override
+  public ISquare getSquareAt(Location l) {
+    return createSquare(l.getRow() * width + l.getCol());
+  }
+
+  private ISquare createSquare(int idx) {
+    Terrain t = Terrain.fromCode(terrain[idx] & ~TREASURE_TAKEN);
+    return t.createSquare(Location.of(idx / width, idx % width), stepCounts[idx],
+        (terrain[idx] & TREASURE_TAKEN) == 0);
+  }
+
+  @Override
+  public int getWidth() {
+    return width;
+  }
+
+  @Override
+  public int getHeight() {
+    return height;
+  }
+
+  @Override
+  public List<Move> getUnexploredMoves() {
+    List<Move> moves = new ArrayList<>(4);
+    for (Move mv : MOVES) {
+      if (mv != Move.BACKTRACK) {
+        Location l = mv.apply(playerLocation);
+        if (l.getRow() >= 0 && l.getRow() < height && l.getCol() >= 0 && l.getCol() < width
+            && stepCounts[l.getRow() * width + l.getCol()] == 0) {
+          moves.add(mv);
+        }
+      }
+    }
+    return moves;
+  }
+
+  @Override
+  public ShortestPaths getShortestPaths() {
+    if (shortestPaths == null) {
+      shortestPaths = new ShortestPaths(this);
+    }
+    return shortestPaths;
+  }
+
+  @Override
+  public boolean isComplete() {
+    return getRemainingTreasureCount() == 0 || getRemainingSteps() <= 0;
+  }
+
+  @Override
+  public int getScore() {
+    return MapBoard.computeScore(this);
+  }
+}
@@ -0,0 +1,137 @@
+/**
+ * (C) Copyright IBM Corp. 2016,2022. All Rights Reserved. US Government Users Restricted Rights - Use,
+ * duplication or disclosure restricted by GSA ADP Schedule Contract with IBM Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.ibm.vie.mazerunner;
+
+/**
+ * The boards of a game that has already been played, rebuilt from its moves without calling the
+ * player again.
+ *
+ * A packed copy of the board is kept every so many moves, along with the location of the player
+ * after each move. The board after any move is rebuilt from the nearest copy at or before it, so at
+ * most one checkpoint interval of moves is played again. Picking the interval is left to the
+ * caller, as it trades the memory of the copies against the time of a seek.
+ */
+public final class PackedReplay {
+  private final MovePlayer player;
+  private final int size;
+  private final int interval;
+  private final int width;
+  private final int[] locations;
+  private final PackedBoard[] checkpoints;
+
+  /**
+   * Plays one move of a game.
+   */
+  public interface MovePlayer {
+    /**
+     * Plays a move on a board.
+     *
+     * @param board The board before the move
+     * @param index The index of the move, from 0
+     * @throws IllegalArgumentException If the move cannot be made on the board
+     */
+    void play(PackedBoard board, int index);
+  }
+
+  /**
+   * Plays a game through once, keeping the checkpoints.
+   *
+   * @param start The board before the first move, which is copied
+   * @param size The number of moves in the game
+   * @param interval The number of moves between checkpoints
+   * @param player Plays the moves of the game
+   * @throws IllegalArgumentException If a move cannot be made
+   */
+  public PackedReplay(PackedBoard start, int size, int interval, MovePlayer player) {
+    if (interval < 1) {
+      throw new IllegalArgumentException("Invalid checkpoint interval " + interval);
+    }
+    this.player = player;
+    this.size = size;
+    this.interval = interval;
+    width = start.getWidth();
+    locations = new int[size + 1];
+    checkpoints = new PackedBoard[size / interval + 1];
+
+    PackedBoard board = new PackedBoard(start);
+    checkpoints[0] = new PackedBoard(board);
+    locations[0] = indexOf(board.getPlayerLocation());
+    for (int i = 0; i < size; ++i) {
+      player.play(board, i);
+      locations[i + 1] = indexOf(board.getPlayerLocation());
+      if ((i + 1) % interval == 0) {
+        checkpoints[(i + 1) / interval] = new PackedBoard(board);
+      }
+    }
+  }
+
+  private int indexOf(Location l) {
+    return l.getRow() * width + l.getCol();
+  }
+
+  /**
+   * Gets the number of moves in the game.
+   *
+   * @return The number of moves
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Gets the location of the player after a number of moves.
+   *
+   * @param moves The number of moves, from 0 to {@link #size()}
+   * @return The location of the player
+   */
+  public Location getPlayerLocation(int moves) {
+    return Location.of(locations[moves] / width, locations[moves] % width);
+  }
+
+  /**
+   * Gets a new board after a number of moves.
+   *
+   * @param moves The number of moves, from 0 to {@link #size()}
+   * @return The board
+   */
+  public PackedBoard getBoard(int moves) {
+    return seek(null, 0, moves);
+  }
+
+  /**
+   * Moves a board to another position of the game. The board is played forward when it is behind
+   * the target and no checkpoint is closer, otherwise a new board is restored from a checkpoint.
+   *
+   * @param board The board after position moves, or null to always start from a checkpoint
+   * @param position The number of moves played on the board
+   * @param target The number of moves to have played, from 0 to {@link #size()}
+   * @return The board after target moves, either the board given or a new one
+   */
+  public PackedBoard seek(PackedBoard board, int position, int target) {
+    if (target < 0 || target > size) {
+      throw new IndexOutOfBoundsException("No position " + target + " in a game of " + size
+          + " moves");
+    }
+    if (board == null || target < position || target - position > target % interval) {
+      board = new PackedBoard(checkpoints[target / interval]);
+      position = target - target % interval;
+    }
+    while (position < target) {
+      player.play(board, position++);
+    }
+    return board;
+  }
+}
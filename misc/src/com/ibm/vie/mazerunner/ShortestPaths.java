@@ -0,0 +1,270 @@
+/**
+ * (C) Copyright IBM Corp. 2016,2022. All Rights Reserved. US Government Users Restricted Rights - Use,
+ * duplication or disclosure restricted by GSA ADP Schedule Contract with IBM Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.ibm.vie.mazerunner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Finds the cheapest paths between squares of a board. The cost of a path is the sum of the
+ * {@link com.ibm.vie.mazerunner.squares.ISquare#getStepCost() step cost} of every square it moves
+ * to, so a path through Mud (5) and then a Space (1) costs 6. Paths never go through walls.
+ * 
+ * You can get one from {@link IAnalysisBoard#getShortestPaths()}. The first question asked from a
+ * square searches the whole board from it. The answer is then remembered, so later costs from the
+ * same square are found in constant time and paths in time proportional to their length.
+ * 
+ * <pre>
+ * ShortestPaths paths = board.getShortestPaths();
+ * int cost = paths.getCost(board.getPlayerLocation(), treasure.getLocation());
+ * List&lt;Move&gt; route = paths.getPath(board.getPlayerLocation(), treasure.getLocation());
+ * </pre>
+ * 
+ * Step costs do not change during a game, so copies of a board share the same instance. Every game
+ * starts from a board that has not searched anything yet, so the searches are paid for by the
+ * player that asks for them.
+ */
+public class ShortestPaths {
+  /**
+   * The cost reported when there is no path between two squares.
+   */
+  public static final int UNREACHABLE = Integer.MAX_VALUE;
+
+  // Upper bound on the memory held by remembered searches
+  private static final long SEARCH_CACHE_BYTES = 32L << 20;
+
+  private final int width, height;
+  private final int[] stepCosts;
+  private final Map<Integer, Search> searches;
+
+  /**
+   * A finished search from one square: the cost to every square and the square each cheapest path
+   * arrives from.
+   */
+  private static class Search {
+    final int[] costs;
+    final int[] previous;
+
+    Search(int[] costs, int[] previous) {
+      this.costs = costs;
+      this.previous = previous;
+    }
+  }
+
+  /**
+   * Students do not need this, use {@link IAnalysisBoard#getShortestPaths()}.
+   * 
+   * @param board The board to find paths on
+   */
+  public ShortestPaths(IBoard board) {
+    width = board.getWidth();
+    height = board.getHeight();
+    stepCosts = new int[width * height];
+    for (int j = 0; j < height; ++j) {
+      for (int i = 0; i < width; ++i) {
+        stepCosts[j * width + i] = board.getSquareAt(Location.of(j, i)).getStepCost();
+      }
+    }
+
+    final int maxSearches =
+        (int) Math.max(4, SEARCH_CACHE_BYTES / (8L * Math.max(1, stepCosts.length)));
+    searches = Collections.synchronizedMap(new LinkedHashMap<Integer, Search>(16, 0.75f, true) {
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Integer, Search> eldest) {
+        return size() > maxSearches;
+      }
+    });
+  }
+
+  /**
+   * Gets the cost of the cheapest path between two squares.
+   * 
+   * @param from The square the path starts at
+   * @param to The square the path ends at
+   * @return The sum of the step costs of the squares moved to, or {@link #UNREACHABLE}
+   */
+  public int getCost(Location from, Location to) {
+    return searchFrom(from).costs[indexOf(to)];
+  }
+
+  /**
+   * Gets the costs of the cheapest paths from one square to several others.
+   * 
+   * @param from The square the paths start at
+   * @param targets The squares the paths end at
+   * @return The cost of the path to each target, in the order of the targets
+   */
+  public int[] getCosts(Location from, List<Location> targets) {
+    int[] costs = searchFrom(from).costs;
+    int[] result = new int[targets.size()];
+    for (int i = 0; i < result.length; ++i) {
+      result[i] = costs[indexOf(targets.get(i))];
+    }
+    return result;
+  }
+
+  /**
+   * Gets the moves of the cheapest path between two squares.
+   * 
+   * @param from The square the path starts at
+   * @param to The square the path ends at
+   * @return The moves to make in order, empty when both squares are the same, or null when there is
+   *         no path
+   */
+  public List<Move> getPath(Location from, Location to) {
+    Search search = searchFrom(from);
+    int target = indexOf(to);
+    if (search.costs[target] == UNREACHABLE) {
+      return null;
+    }
+
+    List<Move> path = new ArrayList<>();
+    for (int square = target; search.previous[square] >= 0; square = search.previous[square]) {
+      int step = square - search.previous[square];
+      if (step == width) {
+        path.add(Move.SOUTH);
+      } else if (step == -width) {
+        path.add(Move.NORTH);
+      } else if (step == 1) {
+        path.add(Move.EAST);
+      } else {
+        path.add(Move.WEST);
+      }
+    }
+    Collections.reverse(path);
+    return path;
+  }
+
+  private int indexOf(Location l) {
+    if (l.getRow() < 0 || l.getRow() >= height || l.getCol() < 0 || l.getCol() >= width) {
+      throw new IndexOutOfBoundsException(l + " is not on the board");
+    }
+    return l.getRow() * width + l.getCol();
+  }
+
+  private Search searchFrom(Location from) {
+    int source = indexOf(from);
+    Search search = searches.get(source);
+    if (search == null) {
+      // Searches from different squares may run at the same time, the map is only locked to store
+      search = search(source);
+      searches.put(source, search);
+    }
+    return search;
+  }
+
+  /**
+   * Dijkstra's algorithm. Heap entries pack the cost in the high half of a long and the square in
+   * the low half, so entries order by cost and no objects are created per square. A square can be
+   * in the heap more than once; entries that are no longer its cheapest cost are skipped.
+   */
+  private Search search(int source) {
+    int[] costs = new int[stepCosts.length];
+    int[] previous = new int[stepCosts.length];
+    Arrays.fill(costs, UNREACHABLE);
+    Arrays.fill(previous, -1);
+
+    long[] heap = new long[64];
+    int heapSize = 0;
+
+    costs[source] = 0;
+    heap[heapSize++] = source;
+
+    while (heapSize > 0) {
+      long entry = heap[0];
+      heap[0] = heap[--heapSize];
+      siftDown(heap, heapSize);
+
+      int square = (int) entry;
+      int cost = (int) (entry >>> 32);
+      if (cost > costs[square]) {
+        continue;
+      }
+
+      int row = square / width;
+      int col = square % width;
+      for (int n = 0; n < 4; ++n) {
+        int next;
+        if (n == 0 && row > 0) {
+          next = square - width;
+        } else if (n == 1 && row < height - 1) {
+          next = square + width;
+        } else if (n == 2 && col < width - 1) {
+          next = square + 1;
+        } else if (n == 3 && col > 0) {
+          next = square - 1;
+        } else {
+          continue;
+        }
+
+        if (stepCosts[next] == UNREACHABLE) {
+          continue; // Walls cost every remaining step, never go through one
+        }
+        int nextCost = cost + stepCosts[next];
+        if (nextCost < costs[next]) {
+          costs[next] = nextCost;
+          previous[next] = square;
+          if (heapSize == heap.length) {
+            heap = Arrays.copyOf(heap, heapSize * 2);
+          }
+          heap[heapSize] = ((long) nextCost << 32) | next;
+          siftUp(heap, heapSize++);
+        }
+      }
+    }
+    return new Search(costs, previous);
+  }
+
+  private static void siftUp(long[] heap, int i) {
+    long entry = heap[i];
+    while (i > 0) {
+      int parent = (i - 1) >>> 1;
+      if (heap[parent] <= entry) {
+        break;
+      }
+      heap[i] = heap[parent];
+      i = parent;
+    }
+    heap[i] = entry;
+  }
+
+  private static void siftDown(long[] heap, int size) {
+    if (size == 0) {
+      return;
+    }
+    long entry = heap[0];
+    int i = 0;
+    int half = size >>> 1;
+    while (i < half) {
+      int child = 2 * i + 1;
+      if (child + 1 < size && heap[child + 1] < heap[child]) {
+        child++;
+      }
+      if (entry <= heap[child]) {
+        break;
+      }
+      heap[i] = heap[child];
+      i = child;
+    }
+    heap[i] = entry;
+  }
+}
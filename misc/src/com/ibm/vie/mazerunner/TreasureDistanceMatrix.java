@@ -0,0 +1,218 @@
+/**
+ * (C) Copyright IBM Corp. 2016,2022. All Rights Reserved. US Government Users Restricted Rights - Use,
+ * duplication or disclosure restricted by GSA ADP Schedule Contract with IBM Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.ibm.vie.mazerunner;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import com.ibm.vie.mazerunner.squares.Treasure;
+
+/**
+ * The costs of the cheapest paths between the starting location and every treasure of a board, in
+ * both directions. Location 0 is the starting location, the treasures follow in the order of
+ * {@link IBoard#getTreasures()}.
+ * 
+ * <pre>
+ * TreasureDistanceMatrix matrix = TreasureDistanceMatrix.of(board);
+ * for (int i = 1; i &lt; matrix.size(); ++i) {
+ *   int cost = matrix.getCost(0, i); // From the start to treasure i
+ * }
+ * </pre>
+ * 
+ * Every row is one search of {@link ShortestPaths}, and the rows are searched in parallel. A matrix
+ * is remembered with the shortest paths of the board, so copies of the same board get it without
+ * searching again. Once treasures were taken, the remembered costs of the remaining treasures are
+ * picked out into a new matrix, so the order above always holds for the board that was asked.
+ */
+public class TreasureDistanceMatrix {
+  // One matrix per ShortestPaths, which is shared by copies of a board. The matrix must not refer
+  // to it so that it is collected along with the boards.
+  private static final Map<ShortestPaths, TreasureDistanceMatrix> MATRICES =
+      Collections.synchronizedMap(new WeakHashMap<ShortestPaths, TreasureDistanceMatrix>());
+
+  private final List<Location> locations;
+  private final Map<Location, Integer> indexes;
+  private final int[] costs;
+
+  private TreasureDistanceMatrix(List<Location> locations, int[] costs) {
+    this.locations = Collections.unmodifiableList(locations);
+    this.costs = costs;
+    indexes = new HashMap<>();
+    for (int i = 0; i < locations.size(); ++i) {
+      indexes.put(locations.get(i), i);
+    }
+  }
+
+  /**
+   * Gets the matrix of a board, searching it only when no copy of the board computed it yet.
+   * 
+   * @param board The board to get the matrix of
+   * @return The costs between the starting location and the treasures of the board
+   */
+  public static TreasureDistanceMatrix of(IAnalysisBoard board) {
+    List<Location> locations = locationsOf(board);
+    ShortestPaths paths = board.getShortestPaths();
+    TreasureDistanceMatrix matrix = MATRICES.get(paths);
+    if (matrix == null || !matrix.covers(locations)) {
+      matrix = compute(paths, locations);
+      MATRICES.put(paths, matrix);
+    }
+    return matrix.locations.equals(locations) ? matrix : matrix.select(locations);
+  }
+
+  /**
+   * Gets the number of locations of the matrix.
+   * 
+   * @return The number of treasures plus one for the starting location
+   */
+  public int size() {
+    return locations.size();
+  }
+
+  /**
+   * Gets the locations of the matrix.
+   * 
+   * @return The starting location followed by the treasure locations
+   */
+  public List<Location> getLocations() {
+    return locations;
+  }
+
+  /**
+   * Gets the index of a location in the matrix.
+   * 
+   * @param l The location to look for
+   * @return The index of the location, or -1 if it is neither the start nor a treasure
+   */
+  public int indexOf(Location l) {
+    Integer index = indexes.get(l);
+    return index == null ? -1 : index;
+  }
+
+  /**
+   * Gets the cost of the cheapest path between two locations of the matrix.
+   * 
+   * @param from The index of the location the path starts at
+   * @param to The index of the location the path ends at
+   * @return The sum of the step costs of the squares moved to, or
+   *         {@link ShortestPaths#UNREACHABLE}
+   */
+  public int getCost(int from, int to) {
+    return costs[from * locations.size() + to];
+  }
+
+  /**
+   * Gets the cost of the cheapest path between two locations of the matrix.
+   * 
+   * @param from The location the path starts at
+   * @param to The location the path ends at
+   * @return The sum of the step costs of the squares moved to, or
+   *         {@link ShortestPaths#UNREACHABLE}
+   * @throws IllegalArgumentException If a location is neither the start nor a treasure
+   */
+  public int getCost(Location from, Location to) {
+    int i = indexOf(from);
+    int j = indexOf(to);
+    if (i < 0 || j < 0) {
+      throw new IllegalArgumentException(
+          (i < 0 ? from : to) + " is neither the starting location nor a treasure");
+    }
+    return getCost(i, j);
+  }
+
+  /**
+   * A matrix computed before treasures were taken still holds the costs of the treasures that
+   * remain.
+   */
+  private boolean covers(List<Location> wanted) {
+    for (Location l : wanted) {
+      if (indexOf(l) < 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Picks the costs between some of the locations of this matrix, without searching.
+   */
+  private TreasureDistanceMatrix select(List<Location> wanted) {
+    int[] index = new int[wanted.size()];
+    for (int i = 0; i < index.length; ++i) {
+      index[i] = indexOf(wanted.get(i));
+    }
+    int[] selected = new int[index.length * index.length];
+    for (int i = 0; i < index.length; ++i) {
+      for (int j = 0; j < index.length; ++j) {
+        selected[i * index.length + j] = getCost(index[i], index[j]);
+      }
+    }
+    return new TreasureDistanceMatrix(new ArrayList<>(wanted), selected);
+  }
+
+  private static List<Location> locationsOf(IBoard board) {
+    List<Location> locations = new ArrayList<>();
+    locations.add(board.getStartingLocation());
+    for (Treasure t : board.getTreasures()) {
+      locations.add(t.getLocation());
+    }
+    return locations;
+  }
+
+  private static TreasureDistanceMatrix compute(ShortestPaths paths,
+      final List<Location> locations) {
+    final int[] costs = new int[locations.size() * locations.size()];
+    ForkJoinPool.commonPool().invoke(new Rows(paths, locations, costs, 0, locations.size()));
+    return new TreasureDistanceMatrix(locations, costs);
+  }
+
+  /**
+   * Searches a range of rows, splitting it in halves until a single row is left.
+   */
+  private static class Rows extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+
+    private final ShortestPaths paths;
+    private final List<Location> locations;
+    private final int[] costs;
+    private final int from, to;
+
+    Rows(ShortestPaths paths, List<Location> locations, int[] costs, int from, int to) {
+      this.paths = paths;
+      this.locations = locations;
+      this.costs = costs;
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    protected void compute() {
+      if (to - from > 1) {
+        int middle = (from + to) >>> 1;
+        invokeAll(new Rows(paths, locations, costs, from, middle),
+            new Rows(paths, locations, costs, middle, to));
+        return;
+      }
+      int[] row = paths.getCosts(locations.get(from), locations);
+      System.arraycopy(row, 0, costs, from * locations.size(), row.length);
+    }
+  }
+}
@@ -41,7 +41,6 @@ import org.xml.sax.SAXException;
 import com.ibm.vie.mazerunner.IBoard;
 import com.ibm.vie.mazerunner.Location;
 import com.ibm.vie.mazerunner.squares.ISquare;
-import com.ibm.vie.mazerunner.squares.Space;
 import com.ibm.vie.mazerunner.MapBoard;
 
 /**
@@ -58,6 +57,7 @@ public class GameData {
   private static String currentBoardStats;
   private BufferedImage spriteSheet;
   private Map<String, Rectangle> spriteDescriberLookup;
+  private SpriteAtlas spriteAtlas;
   private ScreenBoardPlayer boardPlayer;
   private ScreenBoardSelector boardsScreen;
 
@@ -170,6 +170,7 @@ public class GameData {
 
     // Creates image lookup
     buildImageTable(sheetDescriber);
+    spriteAtlas = new SpriteAtlas(spriteSheet, spriteDescriberLookup);
 
     spritesLoaded = true;
   }
@@ -196,6 +197,7 @@ public class GameData {
 
     // Creates image lookup
     buildImageTable(sheetDescriber);
+    spriteAtlas = new SpriteAtlas(spriteSheet, spriteDescriberLookup);
 
     spritesLoaded = true;
   }
@@ -237,12 +239,36 @@ public class GameData {
    * @param g The graphics to draw to at 0, 0
    */
   public void drawSquare(ISquare square, Graphics g) {
-    Rectangle bounds = spriteDescriberLookup.get(square.getSpriteName());
     Rectangle clipBounds = g.getClipBounds();
-    Space space = (Space) square;
-    g.drawImage(spriteSheet, clipBounds.x, clipBounds.y, clipBounds.x + clipBounds.width,
-        clipBounds.y + clipBounds.height, bounds.x, bounds.y, bounds.x + bounds.width,
-        bounds.y + bounds.height, space.getColor(), null);
+    drawSquare(square, g, clipBounds.x, clipBounds.y, clipBounds.width, clipBounds.height);
+  }
+
+  /**
+   * Draw the given square into a rectangle of the Graphics context
+   * 
+   * @param square The square to draw
+   * @param g The graphics to draw to
+   * @param x The left of the rectangle
+   * @param y The top of the rectangle
+   * @param width The width of the rectangle
+   * @param height The height of the rectangle
+   */
+  public void drawSquare(ISquare square, Graphics g, int x, int y, int width, int height) {
+    spriteAtlas.drawSquare(square, g, x, y, width, height);
+  }
+
+  /**
+   * Gets the board sprites, scaled and ready to draw.
+   * 
+   * Must call "loadSprites(...)" before this method can be called.
+   * 
+   * @return The sprite atlas
+   */
+  public SpriteAtlas getSpriteAtlas() {
+    if (!spritesLoaded) {
+      throw new IllegalStateException();
+    }
+    return spriteAtlas;
   }
 
   /**
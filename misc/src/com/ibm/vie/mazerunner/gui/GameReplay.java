@@ -0,0 +1,147 @@
+/**
+ * (C) Copyright IBM Corp. 2016,2022. All Rights Reserved. US Government Users Restricted Rights - Use,
+ * duplication or disclosure restricted by GSA ADP Schedule Contract with IBM Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.ibm.vie.mazerunner.gui;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.ibm.vie.mazerunner.IBoard;
+import com.ibm.vie.mazerunner.Location;
+import com.ibm.vie.mazerunner.Move;
+import com.ibm.vie.mazerunner.PackedBoard;
+import com.ibm.vie.mazerunner.PackedReplay;
+
+/**
+ * A game that has already been played, which can be shown at any move without calling the player
+ * again.
+ *
+ * The replay keeps the moves in a {@link PackedReplay}, with checkpoints as far apart as the memory
+ * they may take allows, and a board at the position shown. Seeking plays that board forward, or
+ * restores the nearest checkpoint when it is closer.
+ */
+public class GameReplay {
+  // Roughly how much memory the checkpoints of one replay may take
+  private static final long CHECKPOINT_BYTES = 64L << 20;
+  private static final int MIN_CHECKPOINT_INTERVAL = 256;
+  private static final Move[] MOVES = Move.values();
+
+  private final byte[] moves;
+  private final PackedReplay replay;
+
+  private PackedBoard board;
+  private int position;
+
+  /**
+   * Records the moves of a game as it is played.
+   */
+  public static class Recorder {
+    private final PackedBoard start;
+    private final List<Move> moves = new ArrayList<>();
+
+    /**
+     * Starts recording a game.
+     *
+     * @param start The board before the first recorded move
+     * @throws IllegalArgumentException if the board holds squares that are not built-in squares
+     */
+    public Recorder(IBoard start) {
+      this.start = new PackedBoard(start);
+    }
+
+    /**
+     * Records a move the board accepted.
+     *
+     * @param move The move
+     */
+    public void add(Move move) {
+      moves.add(move);
+    }
+
+    /**
+     * Gets the replay of the moves recorded so far.
+     *
+     * @return The replay, positioned before the first move
+     */
+    public GameReplay finish() {
+      return new GameReplay(start, moves);
+    }
+  }
+
+  private GameReplay(PackedBoard start, List<Move> recorded) {
+    int size = recorded.size();
+    moves = new byte[size];
+    for (int i = 0; i < size; ++i) {
+      moves[i] = (byte) recorded.get(i).ordinal();
+    }
+
+    long boardBytes = 3L * start.getWidth() * start.getHeight() + size;
+    int checkpointInterval = (int) Math.max(MIN_CHECKPOINT_INTERVAL,
+        Math.min(Integer.MAX_VALUE, (long) size * boardBytes / CHECKPOINT_BYTES + 1));
+    replay = new PackedReplay(start, size, checkpointInterval,
+        (b, index) -> b.move(MOVES[moves[index]]));
+
+    board = new PackedBoard(start);
+    position = 0;
+  }
+
+  /**
+   * Gets the number of moves in the game.
+   *
+   * @return The number of moves
+   */
+  public int size() {
+    return moves.length;
+  }
+
+  /**
+   * Gets how many moves have been played on the board shown.
+   *
+   * @return The current position, from 0 to {@link #size()}
+   */
+  public int getPosition() {
+    return position;
+  }
+
+  /**
+   * Gets the board at the current position. The board changes as the replay moves, and must only
+   * be used by the thread moving the replay.
+   *
+   * @return The board at the current position
+   */
+  public IBoard getBoard() {
+    return board;
+  }
+
+  /**
+   * Gets the location of the player after a number of moves.
+   *
+   * @param position The number of moves, from 0 to {@link #size()}
+   * @return The location of the player
+   */
+  public Location getPlayerLocation(int position) {
+    return replay.getPlayerLocation(position);
+  }
+
+  /**
+   * Moves the replay to a position.
+   *
+   * @param target The number of moves to have played, from 0 to {@link #size()}
+   */
+  public void seek(int target) {
+    board = replay.seek(board, position, target);
+    position = target;
+  }
+}
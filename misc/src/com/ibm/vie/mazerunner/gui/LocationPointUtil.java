@@ -39,7 +39,7 @@ public class LocationPointUtil {
   }
 
   public static Location toLocation(Point p) {
-    return new Location((int) p.getY(), (int) p.getX());
+    return Location.of((int) p.getY(), (int) p.getX());
   }
 
 }
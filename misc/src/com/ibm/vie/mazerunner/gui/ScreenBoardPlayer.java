@@ -17,12 +17,22 @@ package com.ibm.vie.mazerunner.gui;
 
 import java.awt.CardLayout;
 import java.awt.Color;
+import java.awt.Cursor;
 import java.awt.Font;
 import java.awt.Rectangle;
 import java.awt.BorderLayout;
 import java.awt.Dialog;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.swing.JCheckBox;
 import javax.swing.JLabel;
 import javax.swing.JOptionPane;
 import javax.swing.JPanel;
@@ -31,18 +41,28 @@ import javax.swing.SwingUtilities;
 import javax.swing.SwingWorker;
 import javax.swing.JDialog;
 import javax.swing.JProgressBar;
+import javax.swing.Timer;
 
 import com.ibm.vie.mazerunner.BoardPanel;
 import com.ibm.vie.mazerunner.IBoard;
 import com.ibm.vie.mazerunner.IPlayer;
+import com.ibm.vie.mazerunner.Location;
 import com.ibm.vie.mazerunner.MapBoard;
-import com.ibm.vie.mazerunner.MapBoardView;
 import com.ibm.vie.mazerunner.Move;
 
 /**
  * Screen used to display and run a map/board currently set within the GameData.
+ *
+ * A running game is split between a simulation thread, which calls the player at the pace the speed
+ * slider asks for, and a frame timer on the EDT. The simulation publishes a snapshot of the board
+ * and the squares each move changed, and every frame draws the latest snapshot, so many moves a
+ * frame cost one repaint. At the top speed the simulation does not wait between moves at all.
+ *
+ * With "Compute first" checked, the simulation instead plays the whole game without drawing it and
+ * records a {@link GameReplay}. The replay is then shown at the speed of the slider, and can be
+ * stepped and scrubbed without calling the player again.
  */
-public class ScreenBoardPlayer extends Screen implements Runnable {
+public class ScreenBoardPlayer extends Screen {
 
   /**
    * 
@@ -51,6 +71,18 @@ public class ScreenBoardPlayer extends Screen implements Runnable {
   private final int MIN_SPEED = 1;
   private final int MAX_SPEED = 20;
   private final int DEFAULT_SPEED = 16;
+  private static final int FRAME_MILLIS = 16;
+  // Replay speed at the top of the slider
+  private static final int MAX_REPLAY_MOVES_PER_FRAME = 64;
+  // Seeking further than this redraws the whole board instead of the squares visited in between
+  private static final int MAX_SEEK_SQUARES = 4096;
+
+  // One game runs at a time, a new run waits for a paused one to wind down
+  private static final ExecutorService SIMULATION = Executors.newSingleThreadExecutor(r -> {
+    Thread t = new Thread(r, "board-player-simulation");
+    t.setDaemon(true);
+    return t;
+  });
 
   private JLabel totalStepsLabel;
   private JLabel stepsLeftLabel;
@@ -62,12 +94,35 @@ public class ScreenBoardPlayer extends Screen implements Runnable {
   private JLabel nameLabel;
 
   private JSlider speedSelector;
+  private JCheckBox computeFirst;
+  private JSlider replaySlider;
 
   private IPlayer player;
   private BoardPanel board;
 
-  private Boolean runGame;
-
+  private volatile boolean runGame;
+  // Bumped by every run and board load, so a stale simulation stops and its frames are dropped
+  private final AtomicInteger runs = new AtomicInteger();
+
+  private final Timer frameTimer = new Timer(FRAME_MILLIS, e -> renderFrame());
+
+  // Published by the simulation, drained by each frame
+  private final Object frameLock = new Object();
+  private int frameRun;
+  private IBoard frameBoard;
+  private final Set<Location> frameSquares = new LinkedHashSet<>();
+  private Location framePrevious;
+  private Location frameCurrent;
+  private PlayerMoveException frameError;
+  private boolean frameDone;
+
+  // Compute first mode, only touched on the EDT
+  private boolean computing;
+  private GameReplay replay;
+  private boolean updatingReplaySlider;
+  private long lastReplayFrame;
+  private double replayMoves;
+  private final Timer replayTimer = new Timer(FRAME_MILLIS, e -> replayFrame());
 
   /**
    * Constructor.
@@ -102,15 +157,23 @@ public class ScreenBoardPlayer extends Screen implements Runnable {
    * @throws AnalyzeBoardException
    */
   public void reloadBoard() throws AnalyzeBoardException {
+    runs.incrementAndGet();
+    computing = false;
+    setCursor(null);
+    stopReplay();
+    replay = null;
+    replaySlider.setValue(0);
+    replaySlider.setEnabled(false);
     if (board != null) {
       this.remove(board);
     }
     board = new BoardPanel();
     final MapBoard gameBoard = GameData.getInstance().getBoard();
-    board.loadBoard(gameBoard);
+    // The simulation changes the board, the panel only ever draws snapshots of it
+    board.loadBoard(gameBoard.snapshot());
     board.setBounds(new Rectangle(20, 83, 532, 467));
     this.add(board);
-    updateLabels();
+    updateLabels(gameBoard);
 
     final JProgressBar dpb = new JProgressBar();
     dpb.setIndeterminate(true);
@@ -184,6 +247,21 @@ public class ScreenBoardPlayer extends Screen implements Runnable {
     speedSelector.setBackground(new Color(173, 131, 57));
     speedSelector.setBounds(new Rectangle(565, 470, 300, 25));
 
+    computeFirst = new JCheckBox("Compute first");
+    computeFirst.setFont(new Font("Verdana", Font.BOLD, 14));
+    computeFirst.setBackground(new Color(173, 131, 57));
+    computeFirst.setBounds(new Rectangle(565, 497, 300, 22));
+
+    replaySlider = new JSlider(JSlider.HORIZONTAL, 0, 0, 0);
+    replaySlider.setBackground(new Color(173, 131, 57));
+    replaySlider.setBounds(new Rectangle(565, 521, 300, 25));
+    replaySlider.setEnabled(false);
+    replaySlider.addChangeListener(e -> {
+      if (!updatingReplaySlider && replay != null) {
+        showReplayPosition(replaySlider.getValue());
+      }
+    });
+
     nameLabel = createLabel("Board: ", 30, 572, 83);
     totalStepsLabel = createLabel("Steps available: ", 10, 572, 133);
     stepsLeftLabel = createLabel("Steps remaining: ", 10, 572, 183);
@@ -212,6 +290,8 @@ public class ScreenBoardPlayer extends Screen implements Runnable {
     this.add(treasuresFoundLabel);
     this.add(speedLabel);
     this.add(speedSelector);
+    this.add(computeFirst);
+    this.add(replaySlider);
     this.add(scoreLabel);
     this.add(nameLabel);
 
@@ -221,8 +301,7 @@ public class ScreenBoardPlayer extends Screen implements Runnable {
   /**
    * Updates the game statistics for the currently running board
    */
-  private void updateLabels() {
-    IBoard mapBoard = GameData.getInstance().getBoard();
+  private void updateLabels(IBoard mapBoard) {
     String boardName = mapBoard.getName().substring(0, mapBoard.getName().length() - 4);
     int totalTreasures = mapBoard.getRemainingTreasureCount() + mapBoard.getObtainedTreasureCount();
     nameLabel.setText("Board: " + boardName);
@@ -267,30 +346,85 @@ public class ScreenBoardPlayer extends Screen implements Runnable {
   }
 
   /**
-   * Used to time and call an individual move iteration.
+   * Calls the player for one move.
    * 
    * @param mapBoard The board to iterate over
+   * @return The move the board accepted
    */
-  private void moveAndRedraw(MapBoard mapBoard) throws PlayerMoveException {
-    GameData.previousPointLocation
-        .setLocation(LocationPointUtil.toPoint(mapBoard.getPlayerLocation()));
+  private Move playMove(MapBoard mapBoard) throws PlayerMoveException {
     try {
-      Move move = player.selectMove(new MapBoardView(mapBoard));
+      Move move = player.selectMove(mapBoard.snapshot());
       mapBoard.move(move);
+      return move;
     } catch (Exception e) {
       throw new PlayerMoveException(player.getClass().getSimpleName() + ".selectMove() caused a "
           + e.getClass().getSimpleName(), e);
     }
-    GameData.currentPointLocation
-        .setLocation(LocationPointUtil.toPoint(mapBoard.getPlayerLocation()));
-    SwingUtilities.invokeLater(new Runnable() {
-      public void run() {
-        updateLabels();
-        // from the EDT, lets just call repaint on the squares that are being updated
-        board.repaint(GameData.previousPointLocation);
-        board.repaint(GameData.currentPointLocation);
+  }
+
+  /**
+   * Calls the player for one move and publishes the result for the next frame.
+   * 
+   * @param mapBoard The board to iterate over
+   * @param run The run making the move
+   */
+  private void move(MapBoard mapBoard, int run) throws PlayerMoveException {
+    Location previous = mapBoard.getPlayerLocation();
+    playMove(mapBoard);
+    Location current = mapBoard.getPlayerLocation();
+    // The snapshot is immutable, and the next selectMove() gets the same one for free
+    IBoard state = mapBoard.snapshot();
+    synchronized (frameLock) {
+      if (frameRun != run) {
+        frameRun = run;
+        frameSquares.clear();
       }
-    });
+      frameBoard = state;
+      frameSquares.add(previous);
+      frameSquares.add(current);
+      framePrevious = previous;
+      frameCurrent = current;
+    }
+  }
+
+  /**
+   * Draws everything the simulation published since the last frame. Runs on the EDT.
+   */
+  private void renderFrame() {
+    IBoard state;
+    List<Location> squares;
+    Location previous, current;
+    PlayerMoveException error;
+    boolean done;
+    synchronized (frameLock) {
+      boolean currentRun = frameRun == runs.get();
+      state = currentRun ? frameBoard : null;
+      squares = new ArrayList<>(frameSquares);
+      previous = framePrevious;
+      current = frameCurrent;
+      error = currentRun ? frameError : null;
+      done = frameDone;
+      frameBoard = null;
+      frameSquares.clear();
+      frameError = null;
+      frameDone = false;
+    }
+
+    if (state != null) {
+      GameData.previousPointLocation.setLocation(LocationPointUtil.toPoint(previous));
+      GameData.currentPointLocation.setLocation(LocationPointUtil.toPoint(current));
+      board.showBoard(state);
+      for (Location l : squares) {
+        board.repaint(l.getRow(), l.getCol());
+      }
+      updateLabels(state);
+    }
+    if (error != null) {
+      JOptionPane.showMessageDialog(null, error.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+    }
+    if (done && !runGame) {
+      frameTimer.stop();
+    }
   }
 
   /**
@@ -302,10 +436,17 @@ public class ScreenBoardPlayer extends Screen implements Runnable {
     ActionListener action = new ActionListener() {
       @Override
       public void actionPerformed(ActionEvent event) {
+        if (replay != null) {
+          stopReplay();
+          showReplayPosition(Math.min(replay.size(), replay.getPosition() + 1));
+          return;
+        }
         MapBoard mapBoard = GameData.getInstance().getBoard();
-        if (!mapBoard.isComplete()) {
+        // The simulation owns the board while the game runs
+        if (!mapBoard.isComplete() && !runGame && !computing) {
           try {
-            moveAndRedraw(mapBoard);
+            move(mapBoard, runs.get());
+            renderFrame();
           } catch (PlayerMoveException e) {
             e.printStackTrace(); // Student will be able to see this in their output
             JOptionPane.showMessageDialog(null, e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
@@ -325,10 +466,20 @@ public class ScreenBoardPlayer extends Screen implements Runnable {
     ActionListener action = new ActionListener() {
       @Override
       public void actionPerformed(ActionEvent event) {
+        if (replay != null) {
+          startReplay();
+          return;
+        }
         IBoard mapBoard = GameData.getInstance().getBoard();
-        if (!mapBoard.isComplete() && !runGame) {
-          runGame = true;
-          new Thread(ScreenBoardPlayer.this).start();
+        if (!mapBoard.isComplete() && !runGame && !computing) {
+          final int run = runs.incrementAndGet();
+          if (computeFirst.isSelected()) {
+            computeGame(run, mapBoard);
+          } else {
+            runGame = true;
+            frameTimer.start();
+            SIMULATION.execute(() -> simulate(run));
+          }
         }
       }
     };
@@ -363,6 +514,7 @@ public class ScreenBoardPlayer extends Screen implements Runnable {
         GameData.getInstance().setBoardStats(stats);
         GameData.getInstance().reloadBoardsScreen();
         runGame = false;
+        stopReplay();
       }
     };
     return action;
@@ -379,11 +531,133 @@ public class ScreenBoardPlayer extends Screen implements Runnable {
       @Override
       public void actionPerformed(ActionEvent event) {
         runGame = false;
+        stopReplay();
       }
     };
     return action;
   }
 
+  /**
+   * Plays the rest of the game on the simulation thread without drawing it, then replays it.
+   * 
+   * @param run The run the game belongs to
+   * @param mapBoard The board to play
+   */
+  private void computeGame(final int run, IBoard mapBoard) {
+    final GameReplay.Recorder recorder;
+    try {
+      recorder = new GameReplay.Recorder(mapBoard);
+    } catch (IllegalArgumentException e) {
+      JOptionPane.showMessageDialog(null, "This board cannot be computed first: " + e.getMessage(),
+          "Error", JOptionPane.ERROR_MESSAGE);
+      return;
+    }
+    computing = true;
+    setCursor(Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR));
+
+    SIMULATION.execute(() -> {
+      PlayerMoveException error = null;
+      try {
+        MapBoard gameBoard = GameData.getInstance().getBoard();
+        while (runs.get() == run && !gameBoard.isComplete()) {
+          recorder.add(playMove(gameBoard));
+        }
+      } catch (PlayerMoveException e) {
+        e.printStackTrace(); // Student will be able to see this in their output
+        error = e;
+      }
+      final GameReplay computed = recorder.finish();
+      final PlayerMoveException computeError = error;
+      SwingUtilities.invokeLater(() -> replayComputedGame(run, computed, computeError));
+    });
+  }
+
+  /**
+   * Starts showing a game computed by {@link #computeGame(int, IBoard)}. Runs on the EDT.
+   */
+  private void replayComputedGame(int run, GameReplay computed, PlayerMoveException error) {
+    if (runs.get() != run) {
+      return;
+    }
+    computing = false;
+    setCursor(null);
+    replay = computed;
+    updatingReplaySlider = true;
+    replaySlider.setMaximum(replay.size());
+    replaySlider.setValue(0);
+    updatingReplaySlider = false;
+    replaySlider.setEnabled(true);
+    if (error != null) {
+      JOptionPane.showMessageDialog(null, error.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+    }
+    startReplay();
+  }
+
+  private void startReplay() {
+    if (replay.getPosition() == replay.size()) {
+      showReplayPosition(0);
+    }
+    lastReplayFrame = System.nanoTime();
+    replayMoves = 0;
+    replayTimer.start();
+  }
+
+  private void stopReplay() {
+    replayTimer.stop();
+  }
+
+  /**
+   * Moves the replay on by as many moves as the speed slider asks for since the last frame.
+   */
+  private void replayFrame() {
+    long now = System.nanoTime();
+    int speed = speedSelector.getValue();
+    int moves;
+    if (speed < MAX_SPEED) {
+      replayMoves += (double) (now - lastReplayFrame)
+          / TimeUnit.MILLISECONDS.toNanos(1010 - (50 * speed));
+      moves = (int) replayMoves;
+      replayMoves -= moves;
+    } else {
+      moves = MAX_REPLAY_MOVES_PER_FRAME;
+    }
+    lastReplayFrame = now;
+
+    if (moves > 0) {
+      showReplayPosition((int) Math.min(replay.size(), (long) replay.getPosition() + moves));
+    }
+    if (replay.getPosition() == replay.size()) {
+      stopReplay();
+    }
+  }
+
+  /**
+   * Shows the replay after a number of moves, redrawing the squares visited in between.
+   */
+  private void showReplayPosition(int position) {
+    int from = replay.getPosition();
+    replay.seek(position);
+
+    Location previous = replay.getPlayerLocation(Math.max(0, position - 1));
+    GameData.previousPointLocation.setLocation(LocationPointUtil.toPoint(previous));
+    GameData.currentPointLocation
+        .setLocation(LocationPointUtil.toPoint(replay.getPlayerLocation(position)));
+    board.showBoard(replay.getBoard());
+    if (Math.abs(position - from) > MAX_SEEK_SQUARES) {
+      board.repaintBoard();
+    } else {
+      for (int i = Math.min(from, position); i <= Math.max(from, position); ++i) {
+        Location l = replay.getPlayerLocation(i);
+        board.repaint(l.getRow(), l.getCol());
+      }
+    }
+    updateLabels(replay.getBoard());
+
+    updatingReplaySlider = true;
+    replaySlider.setValue(position);
+    updatingReplaySlider = false;
+  }
+
   /**
    * Returns the instance of IPlayer that is playing the game.
    * 
@@ -394,45 +668,52 @@ public class ScreenBoardPlayer extends Screen implements Runnable {
   }
 
   /**
-   * Runs the game animation (watching the players move iterate over the board.
+   * Runs the game simulation (calling the player for moves until the game ends or is paused). The
+   * frame timer draws the moves as they are made.
+   *
+   * @param run The run this simulation belongs to
    */
-  @Override
-  public void run() {
-    long beforeTime, timeDiff, sleep;
-    beforeTime = System.currentTimeMillis();
-    while (runGame) {
-      MapBoard mapBoard = GameData.getInstance().getBoard();
-      if (!mapBoard.isComplete()) {
-        try {
-          moveAndRedraw(mapBoard);
-        } catch (PlayerMoveException e) {
-          e.printStackTrace(); // Student will be able to see this in their output
-          JOptionPane.showMessageDialog(null, e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
-          runGame = false;
+  private void simulate(int run) {
+    long nextMove = System.nanoTime();
+    PlayerMoveException error = null;
+    try {
+      while (runGame && runs.get() == run) {
+        MapBoard mapBoard = GameData.getInstance().getBoard();
+        if (mapBoard.isComplete()) {
+          break;
+        }
+        move(mapBoard, run);
+
+        int speed = speedSelector.getValue();
+        if (speed < MAX_SPEED) {
+          nextMove += TimeUnit.MILLISECONDS.toNanos(1010 - (50 * speed));
+          long sleep = nextMove - System.nanoTime();
+          if (sleep > 0) {
+            TimeUnit.NANOSECONDS.sleep(sleep);
+          } else {
+            // Too far behind to catch up, keep the pace from now on
+            nextMove = System.nanoTime();
+          }
         }
-      } else {
-        scoreLabel.setText("Score: " + mapBoard.getScore());
-        runGame = false;
-        board.revalidate();
-        board.repaint();
-        redraw();
-      }
-
-      int frameDelay = 1010 - (50 * speedSelector.getValue());
-      timeDiff = System.currentTimeMillis() - beforeTime;
-      sleep = frameDelay - timeDiff;
-
-      if (sleep < 0) {
-        sleep = 2;
       }
-
-      try {
-        Thread.sleep(sleep);
-      } catch (InterruptedException e) {
-
+    } catch (PlayerMoveException e) {
+      e.printStackTrace(); // Student will be able to see this in their output
+      error = e;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } finally {
+      synchronized (frameLock) {
+        if (runs.get() == run) {
+          runGame = false;
+          if (frameRun != run) {
+            frameRun = run;
+            frameBoard = null;
+            frameSquares.clear();
+          }
+          frameError = error;
+        }
+        frameDone = true;
       }
-
-      beforeTime = System.currentTimeMillis();
     }
   }
 }
@@ -33,11 +33,17 @@ import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.PrintWriter;
 import java.text.DecimalFormat;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
 
 import javax.swing.JFileChooser;
 import javax.swing.JLabel;
@@ -56,6 +62,7 @@ import com.ibm.vie.mazerunner.MapBoard;
 import com.ibm.vie.mazerunner.IPlayer;
 import com.ibm.vie.mazerunner.MapBoardView;
 import com.ibm.vie.mazerunner.Move;
+import com.ibm.vie.mazerunner.util.BoardRepository;
 import com.ibm.vie.mazerunner.util.TestHarness;
 import com.ibm.vie.mazerunner.util.TestResult;
 
@@ -65,13 +72,30 @@ import com.ibm.vie.mazerunner.util.TestResult;
  */
 public class ScreenBoardSelector extends Screen {
 
-  private Map<String, MapBoard> loadedBoards;
+  private Map<String, File> loadedBoards;
   private JFileChooser fileLoader;
   private JFileChooser fileSaver;
   private JTextArea results;
   private JScrollPane resultsPane;
   private JScrollPane boardsPane;
   private JPanel boardLaunchers;
+  // Names of the boards in boardLaunchers, in the same sorted order as the panels
+  private final List<String> launcherNames = new ArrayList<>();
+
+  // Parses boards off the event thread, several at a time
+  private static final ExecutorService BOARD_LOADER = Executors.newFixedThreadPool(
+      Runtime.getRuntime().availableProcessors(), new ThreadFactory() {
+        public Thread newThread(Runnable r) {
+          Thread t = new Thread(r, "board-loader");
+          t.setDaemon(true);
+          return t;
+        }
+      });
+  private final Set<String> loadingBoards = new HashSet<>();
+  private final StringBuilder loadErrors = new StringBuilder();
+  private int boardsToLoad;
+  private int boardsLoaded;
+  private JProgressBar loadProgress;
 
   /**
    * Constructor.
@@ -106,7 +130,7 @@ public class ScreenBoardSelector extends Screen {
     FileNameExtensionFilter saveFilter = new FileNameExtensionFilter("Text Files", "txt");
     fileSaver.setFileFilter(saveFilter);
 
-    loadedBoards = new LinkedHashMap<String, MapBoard>();
+    loadedBoards = new LinkedHashMap<String, File>();
 
     createLayout();
     loadDefaultBoards();
@@ -144,6 +168,9 @@ public class ScreenBoardSelector extends Screen {
     boardsPane = new JScrollPane(flowPane);
     boardsPane.setBounds(new Rectangle(20, 83, 436, 467));
 
+    loadProgress = new JProgressBar();
+    loadProgress.setStringPainted(true);
+
     results = new JTextArea();
     results.setEditable(false);
     resultsPane = new JScrollPane(results);
@@ -199,103 +226,146 @@ public class ScreenBoardSelector extends Screen {
   }
 
   /**
-   * Loads one or more boards and puts them into the baord viewer if the load was successful.
+   * Starts loading one or more boards in the background. Each board is put into the board viewer as
+   * soon as it is loaded, and problems are reported once every board started has finished.
    * 
    * @param files An array of files to attemp to load.
    */
   private void loadBoards(File[] files) {
-    StringBuilder errors = new StringBuilder();
-    for (File file : files) {
-      String fullPath = file.getAbsolutePath();
+    for (final File file : files) {
       String filename = file.getName();
       final String boardName = filename.substring(0, filename.length() - 4);
-      try {
-        if (loadedBoards.containsKey(boardName)) {
-          errors.append(boardName + " already loaded\n");
-        } else {
-          MapBoard board = MapBoard.parseBoard(fullPath);
-          loadedBoards.put(boardName, board);
-
-          final JPanel boardPanel = new JPanel();
-          SpringLayout boardPanelLayout = new SpringLayout();
-          boardPanel.setLayout(boardPanelLayout);
-
-          JLabel nameLabel = new JLabel(boardName, JLabel.LEFT);
-          nameLabel.setFont(new Font("Verdana", Font.BOLD, 20));
-          nameLabel.setForeground(Color.black);
-
-          GameButton boardButton =
-              new GameButton(GameData.getInstance().getSprite("button_launch"), 0, 0);
-          boardButton.addActionListener(launchBoard(board, boardName));
-
-          GameButton closeButton =
-              new GameButton(GameData.getInstance().getSprite("button_remove"), 0, 0);
-          closeButton.addActionListener(new ActionListener() {
-            public void actionPerformed(ActionEvent e) {
-              loadedBoards.remove(boardName);
-              boardLaunchers.remove(boardPanel);
-              boardLaunchers.revalidate();
+      if (loadedBoards.containsKey(boardName) || loadingBoards.contains(boardName)) {
+        loadErrors.append(boardName + " already loaded\n");
+        continue;
+      }
+
+      loadingBoards.add(boardName);
+      ++boardsToLoad;
+      BOARD_LOADER.execute(new Runnable() {
+        public void run() {
+          Exception failure = null;
+          try {
+            // Parses the board now, so a broken file is reported when it is loaded
+            BoardRepository.getInstance().getBoard(file);
+          } catch (Exception e) {
+            failure = e;
+          }
+          final Exception loadFailure = failure;
+          SwingUtilities.invokeLater(new Runnable() {
+            public void run() {
+              boardLoaded(boardName, file, loadFailure);
             }
           });
-
-          boardPanelLayout.putConstraint(SpringLayout.NORTH, nameLabel, 5, SpringLayout.NORTH,
-              boardPanel);
-          boardPanelLayout.putConstraint(SpringLayout.VERTICAL_CENTER, boardButton, 0,
-              SpringLayout.VERTICAL_CENTER, boardPanel);
-          boardPanelLayout.putConstraint(SpringLayout.VERTICAL_CENTER, closeButton, 0,
-              SpringLayout.VERTICAL_CENTER, boardButton);
-          boardPanelLayout.putConstraint(SpringLayout.WEST, nameLabel, 5, SpringLayout.WEST,
-              boardPanel);
-          boardPanelLayout.putConstraint(SpringLayout.EAST, nameLabel, 20, SpringLayout.WEST,
-              boardButton);
-          boardPanelLayout.putConstraint(SpringLayout.EAST, boardButton, -5, SpringLayout.WEST,
-              closeButton);
-          boardPanelLayout.putConstraint(SpringLayout.EAST, closeButton, -5, SpringLayout.EAST,
-              boardPanel);
-
-          boardPanel.add(nameLabel);
-          boardPanel.add(boardButton);
-          boardPanel.add(closeButton);
-
-          boardPanel.setPreferredSize(new Dimension(405, 50));
-          boardPanel.setBackground(new Color(173, 131, 57));
-
-          int boardIdx = findBoardInsertIndex(boardName);
-          boardLaunchers.add(boardPanel, boardIdx);
-          boardLaunchers.revalidate();
         }
-      } catch (Exception e) {
-        errors.append("Failed to read file: " + fullPath + "\n");
-        e.printStackTrace();
-      }
+      });
     }
-    if (errors.length() > 0) {
-      JOptionPane.showMessageDialog(null, errors.toString(), "IO Error", JOptionPane.ERROR_MESSAGE);
+    updateLoadProgress();
+  }
 
+  /**
+   * Puts a board that finished loading into the board viewer. Called on the event thread.
+   * 
+   * @param boardName The name of the board
+   * @param file The file of the board
+   * @param failure Why the board could not be loaded, or null if it was loaded
+   */
+  private void boardLoaded(String boardName, File file, Exception failure) {
+    loadingBoards.remove(boardName);
+    ++boardsLoaded;
+    if (failure == null) {
+      loadedBoards.put(boardName, file);
+      addBoardLauncher(boardName, file);
+    } else {
+      loadErrors.append("Failed to read file: " + file.getAbsolutePath() + "\n");
+      failure.printStackTrace();
     }
+    updateLoadProgress();
   }
 
-  // Lazy search
-  private int findBoardInsertIndex(String boardNameToAdd) {
-    int boardIdx = 0;
-
-    while (boardIdx < boardLaunchers.getComponentCount()) {
-      JPanel board = (JPanel) boardLaunchers.getComponent(boardIdx);
-      String boardName = ((JLabel) board.getComponent(0)).getText();
-      int compareVal = boardNameToAdd.compareTo(boardName);
-      if (compareVal <= 0) {
-        break;
-      } else {
-        boardIdx++;
-      }
+  /**
+   * Shows the progress of the boards being loaded, and reports problems once they are all done.
+   */
+  private void updateLoadProgress() {
+    if (boardsLoaded < boardsToLoad) {
+      loadProgress.setMaximum(boardsToLoad);
+      loadProgress.setValue(boardsLoaded);
+      loadProgress.setString("Loading boards " + boardsLoaded + " / " + boardsToLoad);
+      boardsPane.setColumnHeaderView(loadProgress);
+      return;
     }
 
-    if (boardIdx == boardLaunchers.getComponentCount()) {
-      // JPanel.add says to use -1 to append to end
-      boardIdx = -1;
+    boardsToLoad = 0;
+    boardsLoaded = 0;
+    boardsPane.setColumnHeaderView(null);
+    if (loadErrors.length() > 0) {
+      JOptionPane.showMessageDialog(null, loadErrors.toString(), "IO Error",
+          JOptionPane.ERROR_MESSAGE);
+      loadErrors.setLength(0);
     }
+  }
 
-    return boardIdx;
+  /**
+   * Adds the launcher panel of a loaded board, keeping the panels sorted by board name.
+   * 
+   * @param boardName The name of the board
+   * @param file The file of the board
+   */
+  private void addBoardLauncher(final String boardName, File file) {
+    final JPanel boardPanel = new JPanel();
+    SpringLayout boardPanelLayout = new SpringLayout();
+    boardPanel.setLayout(boardPanelLayout);
+
+    JLabel nameLabel = new JLabel(boardName, JLabel.LEFT);
+    nameLabel.setFont(new Font("Verdana", Font.BOLD, 20));
+    nameLabel.setForeground(Color.black);
+
+    GameButton boardButton =
+        new GameButton(GameData.getInstance().getSprite("button_launch"), 0, 0);
+    boardButton.addActionListener(launchBoard(file, boardName));
+
+    GameButton closeButton =
+        new GameButton(GameData.getInstance().getSprite("button_remove"), 0, 0);
+    closeButton.addActionListener(new ActionListener() {
+      public void actionPerformed(ActionEvent e) {
+        loadedBoards.remove(boardName);
+        launcherNames.remove(boardName);
+        boardLaunchers.remove(boardPanel);
+        boardLaunchers.revalidate();
+      }
+    });
+
+    boardPanelLayout.putConstraint(SpringLayout.NORTH, nameLabel, 5, SpringLayout.NORTH,
+        boardPanel);
+    boardPanelLayout.putConstraint(SpringLayout.VERTICAL_CENTER, boardButton, 0,
+        SpringLayout.VERTICAL_CENTER, boardPanel);
+    boardPanelLayout.putConstraint(SpringLayout.VERTICAL_CENTER, closeButton, 0,
+        SpringLayout.VERTICAL_CENTER, boardButton);
+    boardPanelLayout.putConstraint(SpringLayout.WEST, nameLabel, 5, SpringLayout.WEST,
+        boardPanel);
+    boardPanelLayout.putConstraint(SpringLayout.EAST, nameLabel, 20, SpringLayout.WEST,
+        boardButton);
+    boardPanelLayout.putConstraint(SpringLayout.EAST, boardButton, -5, SpringLayout.WEST,
+        closeButton);
+    boardPanelLayout.putConstraint(SpringLayout.EAST, closeButton, -5, SpringLayout.EAST,
+        boardPanel);
+
+    boardPanel.add(nameLabel);
+    boardPanel.add(boardButton);
+    boardPanel.add(closeButton);
+
+    boardPanel.setPreferredSize(new Dimension(405, 50));
+    boardPanel.setBackground(new Color(173, 131, 57));
+
+    int boardIdx = findBoardInsertIndex(boardName);
+    launcherNames.add(boardIdx, boardName);
+    boardLaunchers.add(boardPanel, boardIdx);
+    boardLaunchers.revalidate();
+  }
+
+  private int findBoardInsertIndex(String boardNameToAdd) {
+    int boardIdx = Collections.binarySearch(launcherNames, boardNameToAdd);
+    return boardIdx < 0 ? -boardIdx - 1 : boardIdx;
   }
 
   /**
@@ -352,15 +422,23 @@ public class ScreenBoardSelector extends Screen {
   /**
    * Launches a selected board into the "BoardLauncher" screen to be ran
    *
-   * @param board The board to run
+   * @param boardFile The file of the board to run
    * @param boardName The name of the baord to be ran
    * @return The listener for this action
    */
-  private ActionListener launchBoard(final MapBoard board, final String boardName) {
+  private ActionListener launchBoard(final File boardFile, final String boardName) {
     ActionListener action = new ActionListener() {
       @Override
       public void actionPerformed(ActionEvent event) {
-        MapBoard mBoardCopy = new MapBoard(board);
+        MapBoard mBoardCopy;
+        try {
+          mBoardCopy = BoardRepository.getInstance().getBoard(boardFile);
+        } catch (RuntimeException ex) {
+          JOptionPane.showMessageDialog(null, "Failed to read file: " + boardFile, "IO Error",
+              JOptionPane.ERROR_MESSAGE);
+          ex.printStackTrace();
+          return;
+        }
         GameData.getInstance().setBoard(mBoardCopy, boardName);
         try {
           GameData.getInstance().reloadBoardPlayer();
@@ -385,6 +463,8 @@ public class ScreenBoardSelector extends Screen {
       @Override
       public void actionPerformed(ActionEvent event) {
         final IPlayer player = GameData.getInstance().getBoardPlayer().getPlayer();
+        // Boards can still be loading, run the ones loaded now
+        final Map<String, File> boardsToRun = new LinkedHashMap<>(loadedBoards);
         final StringBuilder stats = new StringBuilder();
 
         final int boardCount[] = {0};
@@ -392,7 +472,7 @@ public class ScreenBoardSelector extends Screen {
 
         final JDialog dlg = new JDialog(SwingUtilities.windowForComponent(ScreenBoardSelector.this),
             "Run All Progress", Dialog.ModalityType.APPLICATION_MODAL);
-        final JProgressBar dpb = new JProgressBar(0, loadedBoards.size());
+        final JProgressBar dpb = new JProgressBar(0, boardsToRun.size());
         dlg.add(BorderLayout.CENTER, dpb);
         dlg.add(BorderLayout.NORTH, new JLabel("Progress..."));
         dlg.setDefaultCloseOperation(JDialog.DISPOSE_ON_CLOSE);
@@ -411,7 +491,7 @@ public class ScreenBoardSelector extends Screen {
             GameData.getInstance().setBoardStats(stats.toString());
             GameData.getInstance().reloadBoardsScreen();
             dpb.setValue(boardCount[0]);
-            if (dpb.getValue() == loadedBoards.size()) {
+            if (dpb.getValue() == boardsToRun.size()) {
               dlg.setVisible(false);
             }
           }
@@ -420,11 +500,11 @@ public class ScreenBoardSelector extends Screen {
         // Spawn main work in new thread to keep GUI responsive.
         new Thread(new Runnable() {
           public void run() {
-            if (loadedBoards.size() < 1) {
+            if (boardsToRun.size() < 1) {
               stats.append("There are no boards loaded to run");
             } else {
               int grandTotal = 0;
-              List<String> boards = new LinkedList<>(loadedBoards.keySet());
+              List<String> boards = new LinkedList<>(boardsToRun.keySet());
               Collections.sort(boards);
               DecimalFormat num_formatter = new DecimalFormat("#,###");
               stats.append(String.format("%-12s", "Board Name"));
@@ -434,8 +514,14 @@ public class ScreenBoardSelector extends Screen {
                 stats.append("\n" + String.format("%-12s", boardName + ":"));
                 SwingUtilities.invokeLater(updateStats);
 
-                TestResult result = TestHarness.runBoard(player.getClass().getName(), player,
-                    new MapBoard(loadedBoards.get(boardName)));
+                TestResult result;
+                try {
+                  result = TestHarness.runBoard(player.getClass().getName(), player,
+                      BoardRepository.getInstance().getBoard(boardsToRun.get(boardName)));
+                } catch (RuntimeException e) {
+                  result = new TestResult(player.getClass().getName(), null,
+                      boardName, 0, e);
+                }
 
 
                 if (result.getException() != null) {
@@ -0,0 +1,251 @@
+/**
+ * (C) Copyright IBM Corp. 2016,2022. All Rights Reserved. US Government Users Restricted Rights - Use,
+ * duplication or disclosure restricted by GSA ADP Schedule Contract with IBM Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.ibm.vie.mazerunner.gui;
+
+import java.awt.Color;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.GraphicsEnvironment;
+import java.awt.Image;
+import java.awt.Rectangle;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+import java.util.HashMap;
+import java.util.Map;
+import com.ibm.vie.mazerunner.squares.ISquare;
+import com.ibm.vie.mazerunner.squares.SquarePalette;
+import com.ibm.vie.mazerunner.squares.Terrain;
+import com.ibm.vie.mazerunner.squares.Treasure;
+
+/**
+ * The board sprites cut out of the sprite sheet and scaled to the size they are drawn at, so
+ * drawing a square is a copy of a ready image. Images are created the first time a sprite is drawn
+ * at a size, as images compatible with the screen so they can be accelerated.
+ *
+ * The built-in squares are looked up by an integer id made from their sprite and background, with
+ * no sprite names built. Squares of other classes fall back to their sprite name.
+ */
+public class SpriteAtlas {
+  /**
+   * The sprites drawn on the board.
+   */
+  public enum Sprite {
+    GRASS_0("Grass_0"), //
+    GRASS_1("Grass_1"), //
+    GRASS_2("Grass_2"), //
+    GRASS_3("Grass_3"), //
+    TREASURE_CLOSED("Treasure_closed"), //
+    TREASURE_OPEN("Treasure_open"), //
+    WALL("Wall"), //
+    MUD("Mud"), //
+    WATER("Water"), //
+    BUSHES("Bushes"), //
+    TREES("Trees"), //
+    MOUNTAIN("Mountain"), //
+    LAVA("Lava"), //
+    HUNTER_STATIONARY_UP("Hunter_Stationary_Up"), //
+    HUNTER_STATIONARY_DOWN("Hunter_Stationary_Down"), //
+    HUNTER_STATIONARY_LEFT("Hunter_Stationary_Left"), //
+    HUNTER_STATIONARY_RIGHT("Hunter_Stationary_Right");
+
+    private final String spriteName;
+
+    private Sprite(String spriteName) {
+      this.spriteName = spriteName;
+    }
+
+    /**
+     * @return The name of the sprite in the sprite sheet
+     */
+    public String getSpriteName() {
+      return spriteName;
+    }
+  }
+
+  private static final Sprite[] SPRITES = Sprite.values();
+  private static final Sprite[] GRASS =
+      {Sprite.GRASS_0, Sprite.GRASS_1, Sprite.GRASS_2, Sprite.GRASS_3};
+
+  // Backgrounds drawn behind sprites: the step colors, the opened treasure color, and none
+  private static final Color[] BACKGROUNDS = {SquarePalette.getStepColor(0),
+      SquarePalette.getStepColor(1), SquarePalette.getStepColor(2), SquarePalette.getStepColor(3),
+      SquarePalette.getTreasureColor(false), null};
+  private static final int OPENED_TREASURE_BACKGROUND = 4;
+  private static final int NO_BACKGROUND = 5;
+
+  private final BufferedImage spriteSheet;
+  private final Map<String, Rectangle> spriteBounds;
+
+  // Images by id for the sizes drawn lately. The squares of a board are up to a pixel wider or
+  // taller than others to fill it, so a board is drawn at up to four sizes, and one or two boards
+  // are shown at a time. The slots are reused oldest first, dropping sizes left behind by a resize.
+  private static final int SIZE_SLOTS = 8;
+  private final int[] slotWidths = new int[SIZE_SLOTS];
+  private final int[] slotHeights = new int[SIZE_SLOTS];
+  private final Image[][] slotImages = new Image[SIZE_SLOTS][];
+  private int nextSlot;
+  // Images of squares that are not built-in, by size, sprite name and background
+  private final Map<String, Image> otherImages = new HashMap<>();
+
+  /**
+   * Creates an atlas for a sprite sheet.
+   *
+   * @param spriteSheet The sprite sheet
+   * @param spriteBounds Where each sprite is in the sheet, by name
+   */
+  public SpriteAtlas(BufferedImage spriteSheet, Map<String, Rectangle> spriteBounds) {
+    this.spriteSheet = spriteSheet;
+    this.spriteBounds = spriteBounds;
+  }
+
+  /**
+   * Draws a square.
+   *
+   * @param square The square to draw
+   * @param g The graphics to draw to
+   * @param x The left of the square
+   * @param y The top of the square
+   * @param width The width of the square
+   * @param height The height of the square
+   */
+  public void drawSquare(ISquare square, Graphics g, int x, int y, int width, int height) {
+    if (width <= 0 || height <= 0) {
+      return;
+    }
+    Terrain terrain = Terrain.of(square);
+    Image image;
+    if (terrain == null) {
+      image = getOtherImage(square, width, height);
+    } else {
+      image = getImage(idOf(terrain, square), width, height);
+    }
+    g.drawImage(image, x, y, null);
+  }
+
+  /**
+   * Draws a sprite without a background, over what is already drawn.
+   *
+   * @param sprite The sprite to draw
+   * @param g The graphics to draw to
+   * @param x The left of the sprite
+   * @param y The top of the sprite
+   * @param width The width of the sprite
+   * @param height The height of the sprite
+   */
+  public void drawSprite(Sprite sprite, Graphics g, int x, int y, int width, int height) {
+    if (width <= 0 || height <= 0) {
+      return;
+    }
+    g.drawImage(getImage(idOf(sprite, NO_BACKGROUND), width, height), x, y, null);
+  }
+
+  private static int idOf(Sprite sprite, int background) {
+    return sprite.ordinal() * BACKGROUNDS.length + background;
+  }
+
+  /**
+   * The id of a built-in square, matching {@link ISquare#getSpriteName()} and
+   * {@link SquarePalette#getBackground(ISquare)}.
+   */
+  private static int idOf(Terrain terrain, ISquare square) {
+    int steps = Math.min(square.getStepCount(), GRASS.length - 1);
+    switch (terrain) {
+      case SPACE:
+      case START:
+        return idOf(GRASS[steps], steps);
+      case TREASURE:
+        return ((Treasure) square).spaceHasTreasure() ? idOf(Sprite.TREASURE_CLOSED, 0)
+            : idOf(Sprite.TREASURE_OPEN, OPENED_TREASURE_BACKGROUND);
+      case WALL:
+        return idOf(Sprite.WALL, steps);
+      case MUD:
+        return idOf(Sprite.MUD, steps);
+      case WATER:
+        return idOf(Sprite.WATER, steps);
+      case BUSHES:
+        return idOf(Sprite.BUSHES, steps);
+      case TREES:
+        return idOf(Sprite.TREES, steps);
+      case MOUNTAIN:
+        return idOf(Sprite.MOUNTAIN, steps);
+      default:
+        return idOf(Sprite.LAVA, steps);
+    }
+  }
+
+  private Image getImage(int id, int width, int height) {
+    Image[] images = imagesOfSize(width, height);
+    Image image = images[id];
+    if (image == null) {
+      image = createImage(SPRITES[id / BACKGROUNDS.length].getSpriteName(),
+          BACKGROUNDS[id % BACKGROUNDS.length], width, height);
+      images[id] = image;
+    }
+    return image;
+  }
+
+  private Image[] imagesOfSize(int width, int height) {
+    for (int i = 0; i < SIZE_SLOTS; ++i) {
+      if (slotWidths[i] == width && slotHeights[i] == height && slotImages[i] != null) {
+        return slotImages[i];
+      }
+    }
+    int slot = nextSlot;
+    nextSlot = (nextSlot + 1) % SIZE_SLOTS;
+    slotWidths[slot] = width;
+    slotHeights[slot] = height;
+    slotImages[slot] = new Image[SPRITES.length * BACKGROUNDS.length];
+    return slotImages[slot];
+  }
+
+  private Image getOtherImage(ISquare square, int width, int height) {
+    Color background = SquarePalette.getBackground(square);
+    String key = width + "x" + height + ":" + square.getSpriteName() + ":" + background.getRGB();
+    Image image = otherImages.get(key);
+    if (image == null) {
+      image = createImage(square.getSpriteName(), background, width, height);
+      otherImages.put(key, image);
+    }
+    return image;
+  }
+
+  /**
+   * Cuts a sprite out of the sheet and scales it once, the way it used to be scaled on every draw.
+   */
+  private Image createImage(String spriteName, Color background, int width, int height) {
+    int transparency = background == null ? Transparency.TRANSLUCENT : Transparency.OPAQUE;
+    BufferedImage image;
+    if (GraphicsEnvironment.isHeadless()) {
+      image = new BufferedImage(width, height,
+          background == null ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+    } else {
+      GraphicsConfiguration config = GraphicsEnvironment.getLocalGraphicsEnvironment()
+          .getDefaultScreenDevice().getDefaultConfiguration();
+      image = config.createCompatibleImage(width, height, transparency);
+    }
+
+    Rectangle bounds = spriteBounds.get(spriteName);
+    Graphics2D g = image.createGraphics();
+    try {
+      g.drawImage(spriteSheet, 0, 0, width, height, bounds.x, bounds.y, bounds.x + bounds.width,
+          bounds.y + bounds.height, background, null);
+    } finally {
+      g.dispose();
+    }
+    return image;
+  }
+}
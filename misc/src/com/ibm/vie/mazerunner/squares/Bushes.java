@@ -64,4 +64,8 @@ public class Bushes extends Space {
   public int getStepCost() {
     return 23;
   }
+
+  public ISquare duplicate() {
+    return getClass() == Bushes.class ? new Bushes(this) : super.duplicate();
+  }
 }
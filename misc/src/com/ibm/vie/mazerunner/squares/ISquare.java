@@ -81,7 +81,8 @@ public interface ISquare {
   public String getSpriteName();
 
   /**
-   * Duplicates the square dynamically,
+   * Duplicates the square dynamically, by reflectively calling the copy constructor of the square's
+   * class. The built-in squares override this with a direct call to their copy constructor.
    * 
    * Students do not need to call this
    * 
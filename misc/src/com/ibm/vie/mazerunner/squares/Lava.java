@@ -61,4 +61,8 @@ public class Lava extends Space {
   public int getStepCost() {
     return 61;
   }
+
+  public ISquare duplicate() {
+    return getClass() == Lava.class ? new Lava(this) : super.duplicate();
+  }
 }
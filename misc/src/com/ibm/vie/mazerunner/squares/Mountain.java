@@ -61,4 +61,8 @@ public class Mountain extends Space {
   public int getStepCost() {
     return 47;
   }
+
+  public ISquare duplicate() {
+    return getClass() == Mountain.class ? new Mountain(this) : super.duplicate();
+  }
 }
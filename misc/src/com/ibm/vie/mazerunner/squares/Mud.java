@@ -61,4 +61,8 @@ public class Mud extends Space {
   public int getStepCost() {
     return 5;
   }
+
+  public ISquare duplicate() {
+    return getClass() == Mud.class ? new Mud(this) : super.duplicate();
+  }
 }
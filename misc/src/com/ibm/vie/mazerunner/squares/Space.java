@@ -30,8 +30,6 @@ import com.ibm.vie.mazerunner.Location;
 public class Space implements ISquare {
   protected int stepCount = 0;
   protected Location location;
-  private Color[] stepColors = new Color[] {new Color(22, 144, 42), new Color(86, 103, 42),
-      new Color(88, 83, 23), new Color(58, 55, 15)};
 
   /**
    * Ignore this. Used for game setup.
@@ -53,7 +51,7 @@ public class Space implements ISquare {
    * @param col The column index the square will be located at
    */
   public Space(int row, int col) {
-    this.location = new Location(row, col);
+    this.location = Location.of(row, col);
   }
 
   /**
@@ -78,12 +76,25 @@ public class Space implements ISquare {
   public boolean moveTo(IBoard board) {
     // validate if it's legal to move here
     boolean ok = isValidMove(board);
-    if (ok) {
+    if (ok && isHeldBy(board)) {
       ++stepCount;
     }
     return ok;
   }
 
+  /**
+   * Squares can be shared between a board and its read-only snapshots, so only the board holding
+   * this very square may change it. The board must be a MapBoard itself, not a subclass, so the
+   * square it reports holding is the one it really holds.
+   *
+   * @param board The board the move is being made on
+   * @return true if the square belongs to the board and may be changed by it
+   */
+  protected boolean isHeldBy(IBoard board) {
+    return board != null && board.getClass() == com.ibm.vie.mazerunner.MapBoard.class
+        && board.getSquareAt(location) == this;
+  }
+
   /**
    * Returns true if it is valid to move to this square
    */
@@ -106,7 +117,7 @@ public class Space implements ISquare {
    * @return Color of the (empty) space.
    */
   public Color getColor() {
-    return stepColors[Math.min(stepColors.length - 1, stepCount)];
+    return SquarePalette.getStepColor(stepCount);
   }
 
   public int getStepCount() {
@@ -117,6 +128,15 @@ public class Space implements ISquare {
     return 1;
   }
 
+  /**
+   * Copies the built-in squares through their copy constructors. Squares extending one of the
+   * built-in types without overriding this fall back to the reflective copy of
+   * {@link ISquare#duplicate()}.
+   */
+  public ISquare duplicate() {
+    return getClass() == Space.class ? new Space(this) : ISquare.super.duplicate();
+  }
+
   public String getSpriteName() {
     return "Grass_" + Math.min(stepCount, 3);
   }
@@ -0,0 +1,65 @@
+/**
+ * (C) Copyright IBM Corp. 2016,2022. All Rights Reserved. US Government Users Restricted Rights - Use,
+ * duplication or disclosure restricted by GSA ADP Schedule Contract with IBM Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.ibm.vie.mazerunner.squares;
+
+import java.awt.Color;
+
+/**
+ * Students do not need this. The colors squares are drawn with. Colors are immutable, so one
+ * palette is shared by every square instead of each square holding its own.
+ */
+public final class SquarePalette {
+  private static final Color[] STEP_COLORS = new Color[] {new Color(22, 144, 42),
+      new Color(86, 103, 42), new Color(88, 83, 23), new Color(58, 55, 15)};
+  private static final Color TREASURE_COLOR = STEP_COLORS[0];
+  private static final Color OPENED_TREASURE_COLOR = Color.ORANGE;
+
+  private SquarePalette() {}
+
+  /**
+   * Gets the color of an empty square based on the number of times the player moved to it.
+   *
+   * @param stepCount The number of times the player has moved to the square
+   * @return The color of the square
+   */
+  public static Color getStepColor(int stepCount) {
+    return STEP_COLORS[Math.max(0, Math.min(STEP_COLORS.length - 1, stepCount))];
+  }
+
+  /**
+   * Gets the color of a treasure square.
+   *
+   * @param hasTreasure true if the treasure has not been obtained yet
+   * @return The color of the square
+   */
+  public static Color getTreasureColor(boolean hasTreasure) {
+    return hasTreasure ? TREASURE_COLOR : OPENED_TREASURE_COLOR;
+  }
+
+  /**
+   * Gets the color to draw behind the sprite of any square, including squares that do not extend
+   * {@link Space}.
+   *
+   * @param square The square to draw
+   * @return The background color of the square
+   */
+  public static Color getBackground(ISquare square) {
+    if (square instanceof Space) {
+      return ((Space) square).getColor();
+    }
+    return getStepColor(square.getStepCount());
+  }
+}
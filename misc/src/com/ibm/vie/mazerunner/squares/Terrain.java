@@ -0,0 +1,201 @@
+/**
+ * (C) Copyright IBM Corp. 2016,2022. All Rights Reserved. US Government Users Restricted Rights - Use,
+ * duplication or disclosure restricted by GSA ADP Schedule Contract with IBM Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.ibm.vie.mazerunner.squares;
+
+import com.ibm.vie.mazerunner.Location;
+
+/**
+ * Students do not need this. The kinds of built-in squares, used by the game engine to store a
+ * board as one byte per square and to create {@link ISquare} objects from that storage.
+ */
+public enum Terrain {
+  SPACE(' '), //
+  START('P'), //
+  WALL('#'), //
+  TREASURE('T'), //
+  MUD('m'), //
+  WATER('w'), //
+  BUSHES('B'), //
+  TREES('t'), //
+  MOUNTAIN('M'), //
+  LAVA('L');
+
+  private static final Terrain[] BY_CODE = values();
+  private static final int[] STEP_COSTS = new int[BY_CODE.length];
+
+  static {
+    // Ask the square classes, so their step costs are only defined in one place
+    for (Terrain t : BY_CODE) {
+      STEP_COSTS[t.ordinal()] = t.createSquare(0, 0).getStepCost();
+    }
+  }
+
+  private final char csvCode;
+
+  private Terrain(char csvCode) {
+    this.csvCode = csvCode;
+  }
+
+  /**
+   * The character that stands for this terrain in a board CSV file.
+   *
+   * @return The CSV character
+   */
+  public char getCsvCode() {
+    return csvCode;
+  }
+
+  /**
+   * The packed form of this terrain.
+   *
+   * @return A byte between 0 and 127
+   */
+  public byte getCode() {
+    return (byte) ordinal();
+  }
+
+  /**
+   * The number of steps it takes to move to a square of this terrain.
+   *
+   * @return An integer of the step cost
+   */
+  public int getStepCost() {
+    return STEP_COSTS[ordinal()];
+  }
+
+  /**
+   * Finds the terrain of a packed code.
+   *
+   * @param code A code returned by {@link #getCode()}
+   * @return The terrain
+   */
+  public static Terrain fromCode(int code) {
+    return BY_CODE[code];
+  }
+
+  /**
+   * Finds the terrain a character in a board CSV file stands for. Unknown characters are spaces.
+   *
+   * @param c The first character of a CSV cell
+   * @return The terrain
+   */
+  public static Terrain fromCsvCode(char c) {
+    switch (c) {
+      case '#':
+      case 'W':
+        return WALL;
+      case 'T':
+        return TREASURE;
+      case 'w':
+        return WATER;
+      case 'B':
+        return BUSHES;
+      case 't':
+        return TREES;
+      case 'M':
+        return MOUNTAIN;
+      case 'L':
+        return LAVA;
+      case 'm':
+        return MUD;
+      case 'P':
+        return START;
+      default:
+        return SPACE;
+    }
+  }
+
+  /**
+   * Finds the terrain of a square. Squares that are not exactly one of the built-in classes have no
+   * terrain.
+   *
+   * @param square The square to check
+   * @return The terrain, or null for squares of any other class
+   */
+  public static Terrain of(ISquare square) {
+    Class<?> type = square.getClass();
+    if (type == Space.class) {
+      return SPACE;
+    } else if (type == Wall.class) {
+      return WALL;
+    } else if (type == Treasure.class) {
+      return TREASURE;
+    } else if (type == Mud.class) {
+      return MUD;
+    } else if (type == Water.class) {
+      return WATER;
+    } else if (type == Bushes.class) {
+      return BUSHES;
+    } else if (type == Trees.class) {
+      return TREES;
+    } else if (type == Mountain.class) {
+      return MOUNTAIN;
+    } else if (type == Lava.class) {
+      return LAVA;
+    }
+    return null;
+  }
+
+  /**
+   * Creates a square of this terrain that has never been visited.
+   *
+   * @param row The row index the square will be located at
+   * @param col The column index the square will be located at
+   * @return A new square
+   */
+  public Space createSquare(int row, int col) {
+    switch (this) {
+      case START:
+        return Space.createPlayerStartSpace(row, col);
+      case WALL:
+        return new Wall(row, col);
+      case TREASURE:
+        return new Treasure(row, col);
+      case MUD:
+        return new Mud(row, col);
+      case WATER:
+        return new Water(row, col);
+      case BUSHES:
+        return new Bushes(row, col);
+      case TREES:
+        return new Trees(row, col);
+      case MOUNTAIN:
+        return new Mountain(row, col);
+      case LAVA:
+        return new Lava(row, col);
+      default:
+        return new Space(row, col);
+    }
+  }
+
+  /**
+   * Creates a square of this terrain in a given state.
+   *
+   * @param location The location of the square
+   * @param stepCount The number of times the player has moved to the square
+   * @param hasTreasure Whether a treasure square still holds its treasure
+   * @return A new square
+   */
+  public Space createSquare(Location location, int stepCount, boolean hasTreasure) {
+    Space square = createSquare(location.getRow(), location.getCol());
+    square.location = location;
+    square.stepCount = stepCount;
+    if (square instanceof Treasure && !hasTreasure) {
+      ((Treasure) square).takeTreasure();
+    }
+    return square;
+  }
+}
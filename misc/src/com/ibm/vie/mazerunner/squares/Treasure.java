@@ -61,7 +61,7 @@ public class Treasure extends Space {
 
   public boolean moveTo(IBoard board) {
     boolean ok = super.moveTo(board); // Do normal validation in Space class
-    if (ok) {
+    if (ok && isHeldBy(board)) {
       if (spaceHasTreasure) { // if the treasure is still here... well now it's not. the player has
                               // it!
         spaceHasTreasure = false;
@@ -78,6 +78,10 @@ public class Treasure extends Space {
     return ok;
   }
 
+  void takeTreasure() {
+    spaceHasTreasure = false;
+  }
+
   /**
    * Returns true if the square has unobtained treasure.
    * 
@@ -88,7 +92,7 @@ public class Treasure extends Space {
   }
 
   public Color getColor() {
-    return spaceHasTreasure() ? new Color(22, 144, 42) : Color.ORANGE;
+    return SquarePalette.getTreasureColor(spaceHasTreasure());
   }
 
   public String getTypeString() {
@@ -114,4 +118,8 @@ public class Treasure extends Space {
       return false;
     }
   }
+
+  public ISquare duplicate() {
+    return getClass() == Treasure.class ? new Treasure(this) : super.duplicate();
+  }
 }
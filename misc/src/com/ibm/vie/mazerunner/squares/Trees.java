@@ -61,4 +61,8 @@ public class Trees extends Space {
   public int getStepCost() {
     return 37;
   }
+
+  public ISquare duplicate() {
+    return getClass() == Trees.class ? new Trees(this) : super.duplicate();
+  }
 }
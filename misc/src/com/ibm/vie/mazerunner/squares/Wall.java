@@ -61,4 +61,8 @@ public class Wall extends Space {
   public int getStepCost() {
     return Integer.MAX_VALUE;
   }
+
+  public ISquare duplicate() {
+    return getClass() == Wall.class ? new Wall(this) : super.duplicate();
+  }
 }
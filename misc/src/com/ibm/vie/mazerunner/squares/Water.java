@@ -61,4 +61,8 @@ public class Water extends Space {
   public int getStepCost() {
     return 13;
   }
+
+  public ISquare duplicate() {
+    return getClass() == Water.class ? new Water(this) : super.duplicate();
+  }
 }
@@ -0,0 +1,133 @@
+/**
+ * (C) Copyright IBM Corp. 2016,2022. All Rights Reserved. US Government Users Restricted Rights - Use,
+ * duplication or disclosure restricted by GSA ADP Schedule Contract with IBM Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.ibm.vie.mazerunner.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.CommandLineParser;
+import org.apache.commons.cli.DefaultParser;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Option;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+import com.ibm.vie.mazerunner.BinaryBoardFile;
+import com.ibm.vie.mazerunner.IBoard;
+import com.ibm.vie.mazerunner.Location;
+import com.ibm.vie.mazerunner.MapBoard;
+import com.ibm.vie.mazerunner.squares.Terrain;
+
+/**
+ * Command line tool that converts every CSV board of a directory to the binary format, then loads
+ * each binary board back and checks that it is the same board as the CSV one.
+ *
+ * java -cp "commons-cli-1.5.0.jar:javacsv.jar:treasurehunt.jar"
+ * com.ibm.vie.mazerunner.util.BoardConverter -b=../boards -o=../boards
+ */
+public class BoardConverter {
+
+  public static void main(String[] args) throws IOException {
+    Options cmdOps = new Options();
+    cmdOps.addOption(Option.builder("b") //
+        .longOpt("boarddir") //
+        .argName("dir") //
+        .hasArg() //
+        .desc("Directory with Board csvs") //
+        .valueSeparator('=') //
+        .required() //
+        .build());
+    cmdOps.addOption(Option.builder("o") //
+        .longOpt("outdir") //
+        .argName("dir") //
+        .hasArg() //
+        .desc("Directory to write the binary boards to, defaults to the board directory") //
+        .valueSeparator('=') //
+        .build());
+
+    CommandLineParser parser = new DefaultParser();
+    CommandLine line;
+    try {
+      line = parser.parse(cmdOps, args);
+    } catch (ParseException exp) {
+      System.err.println("Parsing failed.  Reason: " + exp.getMessage());
+      HelpFormatter formatter = new HelpFormatter();
+      formatter.printHelp("com.ibm.vie.mazerunner.util.BoardConverter", cmdOps, true);
+      System.exit(1);
+      return;
+    }
+
+    File boardDir = new File(line.getOptionValue("b"));
+    File outDir = new File(line.getOptionValue("o", line.getOptionValue("b")));
+    if (!boardDir.isDirectory() || !(outDir.isDirectory() || outDir.mkdirs())) {
+      throw new RuntimeException("The specified directories do not appear to be valid: " + boardDir
+          + ", " + outDir);
+    }
+
+    File[] boardFiles = boardDir.listFiles(file -> file.getName().toLowerCase().endsWith(".csv"));
+    Arrays.sort(boardFiles);
+    int failures = 0;
+    for (File csvFile : boardFiles) {
+      String baseName = csvFile.getName().substring(0, csvFile.getName().length() - 4);
+      File binaryFile = new File(outDir, baseName + BinaryBoardFile.EXTENSION);
+
+      MapBoard csvBoard = MapBoard.parseBoard(csvFile.getPath());
+      BoardGenerator.writeBoardToBinary(binaryFile.getPath(), csvBoard);
+      MapBoard binaryBoard = MapBoard.parseBinaryBoard(binaryFile.getPath());
+
+      String difference = findDifference(csvBoard, binaryBoard);
+      if (difference != null) {
+        ++failures;
+      }
+      System.out.println(csvFile.getName() + ": " + csvFile.length() + " -> " + binaryFile.length()
+          + " bytes, " + (difference == null ? "OK" : "FAILED " + difference));
+    }
+
+    if (failures > 0) {
+      System.err.println(failures + " of " + boardFiles.length + " boards did not round trip");
+      System.exit(1);
+    }
+  }
+
+  /**
+   * Compares two boards square by square.
+   *
+   * @return A description of the first difference, or null if the boards are the same
+   */
+  private static String findDifference(IBoard expected, IBoard actual) {
+    if (expected.getWidth() != actual.getWidth() || expected.getHeight() != actual.getHeight()) {
+      return "size " + actual.getWidth() + "x" + actual.getHeight();
+    }
+    if (expected.getMaxSteps() != actual.getMaxSteps()) {
+      return "max steps " + actual.getMaxSteps();
+    }
+    if (!expected.getStartingLocation().equals(actual.getStartingLocation())) {
+      return "start " + actual.getStartingLocation();
+    }
+    if (expected.getTreasures().size() != actual.getTreasures().size()) {
+      return "treasures " + actual.getTreasures().size();
+    }
+    for (int j = 0; j < expected.getHeight(); ++j) {
+      for (int i = 0; i < expected.getWidth(); ++i) {
+        Location l = Location.of(j, i);
+        if (Terrain.of(expected.getSquareAt(l)) != Terrain.of(actual.getSquareAt(l))) {
+          return "square " + l;
+        }
+      }
+    }
+    return null;
+  }
+}
@@ -26,6 +26,7 @@ import org.apache.commons.cli.HelpFormatter;
 import org.apache.commons.cli.Option;
 import org.apache.commons.cli.Options;
 import org.apache.commons.cli.ParseException;
+import com.ibm.vie.mazerunner.BinaryBoardFile;
 import com.ibm.vie.mazerunner.IBoard;
 import com.ibm.vie.mazerunner.Location;
 import com.ibm.vie.mazerunner.MapBoard;
@@ -103,6 +104,13 @@ public class BoardGenerator {
         .desc("max number of steps") //
         .required() //
         .build());
+    cmdOps.addOption(Option.builder("f") //
+        .argName("format") //
+        .longOpt("format") //
+        .hasArg() //
+        .valueSeparator('=') //
+        .desc("csv or binary, defaults to csv") //
+        .build());
 
     CommandLineParser parser = new DefaultParser();
     try {
@@ -114,8 +122,12 @@ public class BoardGenerator {
           Integer.parseInt(line.getOptionValue("b")), Integer.parseInt(line.getOptionValue("o")),
           Integer.parseInt(line.getOptionValue("s")));
 
-      String file_name = line.getOptionValue("n") + ".csv";
-      writeBoardToCSV(file_name, board);
+      if ("binary".equals(line.getOptionValue("f"))) {
+        writeBoardToBinary(line.getOptionValue("n") + BinaryBoardFile.EXTENSION, board);
+      } else {
+        String file_name = line.getOptionValue("n") + ".csv";
+        writeBoardToCSV(file_name, board);
+      }
     } catch (ParseException exp) {
       // oops, something went wrong
       System.err.println("Parsing failed.  Reason: " + exp.getMessage());
@@ -127,6 +139,17 @@ public class BoardGenerator {
   }
 
 
+  /**
+   * Writes a board in the binary format read by {@link MapBoard#parseBinaryBoard(String)}.
+   *
+   * @param path The path of the file to write
+   * @param board The board to write
+   * @throws IOException If the file cannot be written
+   */
+  public static void writeBoardToBinary(String path, IBoard board) throws IOException {
+    BinaryBoardFile.write(path, board);
+  }
+
   public static void writeBoardToCSV(String path, IBoard board)
       throws FileNotFoundException, IOException {
     try (FileOutputStream fos = new FileOutputStream(path)) {
@@ -135,7 +158,7 @@ public class BoardGenerator {
       for (int y = 0; y < board.getHeight(); y++) {
         for (int x = 0; x < board.getWidth(); x++) {
 
-          ISquare s = board.getSquareAt(new Location(y, x));
+          ISquare s = board.getSquareAt(Location.of(y, x));
           if (s instanceof Treasure)
             outputContents.append('T');
           else if (s instanceof Wall)
@@ -0,0 +1,166 @@
+/**
+ * (C) Copyright IBM Corp. 2016,2022. All Rights Reserved. US Government Users Restricted Rights - Use,
+ * duplication or disclosure restricted by GSA ADP Schedule Contract with IBM Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.ibm.vie.mazerunner.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import com.ibm.vie.mazerunner.MapBoard;
+import com.ibm.vie.mazerunner.PackedBoard;
+
+/**
+ * Remembers the boards loaded by this process, so each board file is parsed once however many times
+ * it is played. A board is kept as a {@link PackedBoard} template, a few bytes per square, and
+ * every request unpacks a new MapBoard from it.
+ *
+ * Boards are found by their path and checked against the modification time and length of the file,
+ * so a file that changed on disk is parsed again. When the templates would take more than the
+ * memory cap, the least recently used boards are forgotten. The cap is read from the
+ * {@value #MAX_BYTES_PROPERTY} system property, in bytes, or can be changed with
+ * {@link #setMaxBytes(long)}.
+ *
+ * To call the methods within this class: BoardRepository.getInstance().&lt;name_of_method&gt;()
+ */
+public class BoardRepository {
+  /**
+   * The system property holding the memory cap in bytes.
+   */
+  public static final String MAX_BYTES_PROPERTY = "mazerunner.boardCacheBytes";
+
+  private static final long DEFAULT_MAX_BYTES = 256L << 20;
+  // Bytes a template keeps per square: terrain and step count. A template holds no ShortestPaths,
+  // those are built by the boards unpacked from it.
+  private static final int BYTES_PER_SQUARE = 1 + 2;
+  private static final int BYTES_PER_BOARD = 512;
+
+  private static final BoardRepository instance = new BoardRepository();
+
+  private final Map<String, Template> templates = new LinkedHashMap<>(16, 0.75f, true);
+  private long maxBytes;
+  private long usedBytes;
+
+  /**
+   * A parsed board and the state of the file it was parsed from.
+   */
+  private static class Template {
+    final long lastModified;
+    final long length;
+    final PackedBoard board;
+    final long bytes;
+
+    Template(long lastModified, long length, PackedBoard board) {
+      this.lastModified = lastModified;
+      this.length = length;
+      this.board = board;
+      this.bytes = BYTES_PER_BOARD + (long) board.getWidth() * board.getHeight() * BYTES_PER_SQUARE
+          + 4L * board.getRemainingTreasureCount();
+    }
+  }
+
+  private BoardRepository() {
+    maxBytes = Long.getLong(MAX_BYTES_PROPERTY, DEFAULT_MAX_BYTES);
+  }
+
+  /**
+   * Used to get the instance of this singleton class.
+   *
+   * @return The single instance of this class
+   */
+  public static BoardRepository getInstance() {
+    return instance;
+  }
+
+  /**
+   * Gets a new board, ready to be played, from a CSV or binary board file. The file is only parsed
+   * if it was not parsed before or changed since.
+   *
+   * @param boardFile The board file
+   * @return A new board in its starting state
+   * @throws UncheckedIOException If the file cannot be read
+   * @throws RuntimeException If the file is not a valid board
+   */
+  public MapBoard getBoard(File boardFile) {
+    String path;
+    try {
+      path = boardFile.getCanonicalPath();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+
+    // Read before parsing, so a change made during the parse is seen next time
+    long lastModified = boardFile.lastModified();
+    long length = boardFile.length();
+
+    Template template;
+    synchronized (this) {
+      template = templates.get(path);
+    }
+    if (template == null || template.lastModified != lastModified || template.length != length) {
+      // Parse without holding the lock, other boards can be loaded at the same time
+      template = new Template(lastModified, length, new PackedBoard(MapBoard.loadBoard(path)));
+      store(path, template);
+    }
+    return template.board.toMapBoard();
+  }
+
+  /**
+   * Gets the memory cap of the remembered boards.
+   *
+   * @return The cap in bytes
+   */
+  public synchronized long getMaxBytes() {
+    return maxBytes;
+  }
+
+  /**
+   * Changes the memory cap of the remembered boards, forgetting boards right away if they take
+   * more.
+   *
+   * @param maxBytes The cap in bytes, 0 to remember no board
+   */
+  public synchronized void setMaxBytes(long maxBytes) {
+    this.maxBytes = maxBytes;
+    evict();
+  }
+
+  /**
+   * Forgets every board.
+   */
+  public synchronized void clear() {
+    templates.clear();
+    usedBytes = 0;
+  }
+
+  private synchronized void store(String path, Template template) {
+    Template previous = templates.put(path, template);
+    if (previous != null) {
+      usedBytes -= previous.bytes;
+    }
+    usedBytes += template.bytes;
+    evict();
+  }
+
+  private void evict() {
+    Iterator<Template> leastRecentlyUsed = templates.values().iterator();
+    while (usedBytes > maxBytes && leastRecentlyUsed.hasNext()) {
+      usedBytes -= leastRecentlyUsed.next().bytes;
+      leastRecentlyUsed.remove();
+    }
+  }
+}
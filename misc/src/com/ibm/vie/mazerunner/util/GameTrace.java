@@ -0,0 +1,653 @@
+/**
+ * (C) Copyright IBM Corp. 2016,2022. All Rights Reserved. US Government Users Restricted Rights - Use,
+ * duplication or disclosure restricted by GSA ADP Schedule Contract with IBM Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.ibm.vie.mazerunner.util;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.CRC32;
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.CommandLineParser;
+import org.apache.commons.cli.DefaultParser;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Option;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVPrinter;
+import com.ibm.vie.mazerunner.IBoard;
+import com.ibm.vie.mazerunner.Location;
+import com.ibm.vie.mazerunner.MapBoard;
+import com.ibm.vie.mazerunner.Move;
+import com.ibm.vie.mazerunner.PackedBoard;
+import com.ibm.vie.mazerunner.PackedReplay;
+import com.ibm.vie.mazerunner.squares.ISquare;
+import com.ibm.vie.mazerunner.squares.Terrain;
+
+/**
+ * Records what players did in their games, so a grade can be audited without running the student
+ * jar again. Games are appended to a trace file as they finish:
+ *
+ * <pre>
+ * magic      4 bytes  "TRHT"
+ * version    1 byte   1
+ * games, each
+ *   length   int      bytes in the rest of the game
+ *   jar      UTF
+ *   player   UTF
+ *   board    UTF      name of the board file
+ *   checksum int      CRC-32 of the board at the start of the game, see {@link #checksumOf(IBoard)}
+ *   score    int
+ *   failure  UTF      class name of what ended the game early, empty when it finished normally
+ *   analyze  varint   microseconds spent in analyzeBoard()
+ *   moves    varint   number of moves
+ *   moves    2 bits per move, four to a byte starting with the low bits, in {@link Move} order
+ *   timings  varint   microseconds spent in selectMove() for each move
+ * </pre>
+ *
+ * Ints are big-endian and varints are unsigned LEB128. A backtrack is stored as the direction it
+ * went, which leaves every square, step and treasure as it was but replays without the bread crumbs
+ * of the original game. A game cut short by a crash is dropped when the file is read, and cut off
+ * when it is next opened for appending.
+ *
+ * java -cp "commons-cli-1.5.0.jar:commons-csv-1.9.0.jar:javacsv.jar:treasurehunt.jar"
+ * com.ibm.vie.mazerunner.util.GameTrace -t=games.trace -b=../boards
+ */
+public final class GameTrace {
+  /**
+   * The file extension of trace files.
+   */
+  public static final String EXTENSION = ".trace";
+
+  private static final int MAGIC = 0x54524854; // "TRHT"
+  private static final int VERSION = 1;
+  private static final Move[] DIRECTIONS = {Move.NORTH, Move.SOUTH, Move.EAST, Move.WEST};
+
+  private static final String[] CSV_HEADERS = {"Game", "Jar Path", "Student Name", "Board Name",
+      "Score", "Failure", "Moves", "Mean Move Micros", "Max Move Micros", "Replayed Score"};
+
+  private GameTrace() {}
+
+  /**
+   * One recorded game.
+   */
+  public static final class Game {
+    private final String jar;
+    private final String playerName;
+    private final String boardName;
+    private final int boardChecksum;
+    private final int score;
+    private final String failure;
+    private final long analyzeMicros;
+    private final int moveCount;
+    private final byte[] moves;
+    private final long[] moveMicros;
+
+    private Game(String jar, String playerName, String boardName, int boardChecksum, int score,
+        String failure, long analyzeMicros, int moveCount, byte[] moves, long[] moveMicros) {
+      this.jar = jar;
+      this.playerName = playerName;
+      this.boardName = boardName;
+      this.boardChecksum = boardChecksum;
+      this.score = score;
+      this.failure = failure;
+      this.analyzeMicros = analyzeMicros;
+      this.moveCount = moveCount;
+      this.moves = moves;
+      this.moveMicros = moveMicros;
+    }
+
+    public String getJar() {
+      return jar;
+    }
+
+    public String getPlayerName() {
+      return playerName;
+    }
+
+    public String getBoardName() {
+      return boardName;
+    }
+
+    /**
+     * @return The checksum of the board the game started from
+     */
+    public int getBoardChecksum() {
+      return boardChecksum;
+    }
+
+    /**
+     * @return The score the game was graded with
+     */
+    public int getScore() {
+      return score;
+    }
+
+    /**
+     * @return The class name of what ended the game early, or an empty string
+     */
+    public String getFailure() {
+      return failure;
+    }
+
+    public long getAnalyzeMicros() {
+      return analyzeMicros;
+    }
+
+    public int getMoveCount() {
+      return moveCount;
+    }
+
+    /**
+     * Gets a move of the game. Backtracks come back as the direction they went.
+     *
+     * @param index The index of the move, from 0
+     * @return The move
+     */
+    public Move getMove(int index) {
+      if (index < 0 || index >= moveCount) {
+        throw new IndexOutOfBoundsException("No move " + index + " in a game of " + moveCount);
+      }
+      return DIRECTIONS[(moves[index >> 2] >> ((index & 3) << 1)) & 3];
+    }
+
+    /**
+     * @param index The index of the move, from 0
+     * @return The microseconds selectMove() took to choose the move
+     */
+    public long getMoveMicros(int index) {
+      return moveMicros[index];
+    }
+
+    byte[] toBytes() {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + moves.length + moveCount * 2);
+      try {
+        DataOutputStream data = new DataOutputStream(bytes);
+        data.writeUTF(jar);
+        data.writeUTF(playerName);
+        data.writeUTF(boardName);
+        data.writeInt(boardChecksum);
+        data.writeInt(score);
+        data.writeUTF(failure);
+        writeVarint(data, analyzeMicros);
+        writeVarint(data, moveCount);
+        data.write(moves, 0, (moveCount + 3) >> 2);
+        for (int i = 0; i < moveCount; ++i) {
+          writeVarint(data, moveMicros[i]);
+        }
+        data.flush();
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+      return bytes.toByteArray();
+    }
+
+    static Game fromBytes(byte[] bytes) throws IOException {
+      DataInputStream data = new DataInputStream(new ByteArrayInputStream(bytes));
+      String jar = data.readUTF();
+      String playerName = data.readUTF();
+      String boardName = data.readUTF();
+      int boardChecksum = data.readInt();
+      int score = data.readInt();
+      String failure = data.readUTF();
+      long analyzeMicros = readVarint(data);
+      long moveCount = readVarint(data);
+      if (moveCount > (long) bytes.length * 4) {
+        throw new IOException("Invalid move count " + moveCount);
+      }
+      byte[] moves = new byte[(int) ((moveCount + 3) >> 2)];
+      data.readFully(moves);
+      long[] moveMicros = new long[(int) moveCount];
+      for (int i = 0; i < moveCount; ++i) {
+        moveMicros[i] = readVarint(data);
+      }
+      return new Game(jar, playerName, boardName, boardChecksum, score, failure, analyzeMicros,
+          (int) moveCount, moves, moveMicros);
+    }
+  }
+
+  /**
+   * Records a game as it is played. A player that timed out may still be moving on its own thread,
+   * so the recording can be frozen: once frozen, or finished, later calls record nothing.
+   */
+  public static final class Recorder {
+    private final int boardChecksum;
+    private long analyzeMicros;
+    private int moveCount;
+    private byte[] moves = new byte[64];
+    private long[] moveMicros = new long[256];
+    private boolean frozen;
+
+    /**
+     * Starts recording a game.
+     *
+     * @param start The board before the first move
+     */
+    public Recorder(IBoard start) {
+      boardChecksum = checksumOf(start);
+    }
+
+    /**
+     * Records the time analyzeBoard() took.
+     *
+     * @param nanos The nanoseconds the call took
+     */
+    public synchronized void setAnalyzeTime(long nanos) {
+      if (frozen) {
+        return;
+      }
+      analyzeMicros = Math.max(0, nanos / 1000);
+    }
+
+    /**
+     * Records a move the board accepted.
+     *
+     * @param from The location of the player before the move
+     * @param to The location of the player after the move
+     * @param nanos The nanoseconds selectMove() took to choose the move
+     */
+    public synchronized void addMove(Location from, Location to, long nanos) {
+      if (frozen) {
+        return;
+      }
+      int direction = directionOf(from, to);
+      if (moveCount == moveMicros.length) {
+        moveMicros = Arrays.copyOf(moveMicros, moveCount * 2);
+        moves = Arrays.copyOf(moves, moveCount >> 1);
+      }
+      moves[moveCount >> 2] |= direction << ((moveCount & 3) << 1);
+      moveMicros[moveCount++] = Math.max(0, nanos / 1000);
+    }
+
+    /**
+     * Stops recording. Moves and times reported after this are ignored.
+     */
+    public synchronized void freeze() {
+      frozen = true;
+    }
+
+    /**
+     * Finishes the recording. Nothing is recorded after this.
+     *
+     * @param jar The jar of the player
+     * @param playerName The name the player gave
+     * @param boardName The name of the board
+     * @param score The score the game was graded with
+     * @param failure What ended the game early, or null
+     * @return The recorded game
+     */
+    public synchronized Game finish(String jar, String playerName, String boardName, int score,
+        Throwable failure) {
+      frozen = true;
+      return new Game(jar, playerName != null ? playerName : "", boardName, boardChecksum, score,
+          failure != null ? failure.getClass().getName() : "", analyzeMicros, moveCount,
+          Arrays.copyOf(moves, (moveCount + 3) >> 2), Arrays.copyOf(moveMicros, moveCount));
+    }
+
+    private static int directionOf(Location from, Location to) {
+      for (int i = 0; i < DIRECTIONS.length; ++i) {
+        if (DIRECTIONS[i].apply(from).equals(to)) {
+          return i;
+        }
+      }
+      throw new IllegalArgumentException("No single move goes from " + from + " to " + to);
+    }
+  }
+
+  /**
+   * Appends games to a trace file. Each game is written with a single write, so games from
+   * different threads never interleave.
+   */
+  public static final class Writer implements AutoCloseable {
+    private final FileOutputStream out;
+
+    /**
+     * Opens a trace file for appending, creating it if needed. A game cut short at the end of the
+     * file, by a crash while it was being written, is cut off first so the next game is appended
+     * after the last complete one.
+     *
+     * @param file The trace file
+     * @throws IOException If the file cannot be opened, or is not a trace file
+     */
+    public Writer(File file) throws IOException {
+      out = new FileOutputStream(file, true);
+      if (out.getChannel().size() == 0) {
+        DataOutputStream header = new DataOutputStream(out);
+        header.writeInt(MAGIC);
+        header.writeByte(VERSION);
+        header.flush();
+      } else {
+        try (RandomAccessFile in = new RandomAccessFile(file, "r")) {
+          readHeader(in);
+          long end = in.getFilePointer();
+          while (end + 4 <= in.length()) {
+            int length = in.readInt();
+            if (length < 0) {
+              throw new IOException("Invalid game length " + length);
+            }
+            if (end + 4 + length > in.length()) {
+              break;
+            }
+            end += 4 + length;
+            in.seek(end);
+          }
+          if (end < in.length()) {
+            out.getChannel().truncate(end);
+          }
+        } catch (IOException e) {
+          out.close();
+          throw e;
+        }
+      }
+    }
+
+    /**
+     * Appends a game to the file.
+     *
+     * @param game The game
+     * @throws IOException If the file cannot be written
+     */
+    public synchronized void append(Game game) throws IOException {
+      byte[] body = game.toBytes();
+      byte[] record = new byte[4 + body.length];
+      record[0] = (byte) (body.length >>> 24);
+      record[1] = (byte) (body.length >>> 16);
+      record[2] = (byte) (body.length >>> 8);
+      record[3] = (byte) body.length;
+      System.arraycopy(body, 0, record, 4, body.length);
+      out.write(record);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+      out.close();
+    }
+  }
+
+  /**
+   * Rebuilds the board at any move of a game, from a {@link PackedReplay} with a checkpoint every
+   * {@value #CHECKPOINT_INTERVAL} moves.
+   */
+  public static final class Replayer {
+    /**
+     * The number of moves between packed copies of the board.
+     */
+    public static final int CHECKPOINT_INTERVAL = 1024;
+
+    private final Game game;
+    private final PackedReplay replay;
+
+    /**
+     * Replays a game.
+     *
+     * @param game The game
+     * @param start The board the game started from
+     * @throws IllegalArgumentException If the board is not the one the game was played on, or the
+     *         moves do not fit it
+     */
+    public Replayer(Game game, IBoard start) {
+      if (checksumOf(start) != game.getBoardChecksum()) {
+        throw new IllegalArgumentException(
+            start.getName() + " is not the board " + game.getBoardName() + " was played on");
+      }
+      this.game = game;
+      replay = new PackedReplay(new PackedBoard(start), game.getMoveCount(), CHECKPOINT_INTERVAL,
+          this::move);
+    }
+
+    private void move(PackedBoard board, int index) {
+      Location from = board.getPlayerLocation();
+      Location to = game.getMove(index).apply(from);
+      if (board.isComplete() || to.getRow() < 0 || to.getRow() >= board.getHeight()
+          || to.getCol() < 0 || to.getCol() >= board.getWidth()
+          || !board.getSquareAt(to).isValidMove(board)) {
+        throw new IllegalArgumentException(
+            "Move " + index + " of the game cannot be made from " + from);
+      }
+      board.move(game.getMove(index));
+    }
+
+    /**
+     * Gets the packed board after a number of moves.
+     *
+     * @param moves The number of moves, from 0 to the number of moves of the game
+     * @return A new copy of the board
+     */
+    public PackedBoard getPackedBoard(int moves) {
+      return replay.getBoard(moves);
+    }
+
+    /**
+     * Gets the board after a number of moves.
+     *
+     * @param moves The number of moves, from 0 to the number of moves of the game
+     * @return A new board
+     */
+    public MapBoard getBoard(int moves) {
+      return getPackedBoard(moves).toMapBoard();
+    }
+  }
+
+  /**
+   * Reads every game of a trace file. A game cut short at the end of the file is left out.
+   *
+   * @param file The trace file
+   * @return The games, in the order they were appended
+   * @throws IOException If the file cannot be read or is not a trace file
+   */
+  public static List<Game> read(File file) throws IOException {
+    try (InputStream in = new BufferedInputStream(new FileInputStream(file))) {
+      DataInputStream data = new DataInputStream(in);
+      readHeader(data);
+
+      List<Game> games = new ArrayList<>();
+      while (true) {
+        byte[] body;
+        try {
+          int length = data.readInt();
+          if (length < 0) {
+            throw new IOException("Invalid game length " + length);
+          }
+          body = new byte[length];
+          data.readFully(body);
+        } catch (EOFException e) {
+          return Collections.unmodifiableList(games);
+        }
+        games.add(Game.fromBytes(body));
+      }
+    }
+  }
+
+  public static void main(String[] args) {
+    Options cmdOps = new Options();
+    cmdOps.addOption(Option.builder("t") //
+        .longOpt("trace") //
+        .argName("file") //
+        .hasArg() //
+        .desc("Trace file to read") //
+        .valueSeparator('=') //
+        .required() //
+        .build());
+    cmdOps.addOption(Option.builder("b") //
+        .longOpt("boarddir") //
+        .argName("dir") //
+        .hasArg() //
+        .desc("Directory with the boards the games were played on, to replay them") //
+        .valueSeparator('=') //
+        .build());
+    cmdOps.addOption(Option.builder("g") //
+        .longOpt("game") //
+        .argName("index") //
+        .hasArg() //
+        .desc("Only show this game, counting from 0") //
+        .valueSeparator('=') //
+        .build());
+    cmdOps.addOption(Option.builder("m") //
+        .longOpt("move") //
+        .argName("count") //
+        .hasArg() //
+        .desc("Show the board of the game after this many moves, needs --boarddir and --game") //
+        .valueSeparator('=') //
+        .build());
+
+    CommandLineParser parser = new DefaultParser();
+    File traceFile;
+    File boardDir;
+    int gameIndex;
+    int moveCount;
+    try {
+      CommandLine line = parser.parse(cmdOps, args);
+      traceFile = new File(line.getOptionValue("t"));
+      boardDir = line.hasOption("b") ? new File(line.getOptionValue("b")) : null;
+      gameIndex = Integer.parseInt(line.getOptionValue("g", "-1"));
+      moveCount = Integer.parseInt(line.getOptionValue("m", "-1"));
+      if (moveCount >= 0 && (boardDir == null || gameIndex < 0)) {
+        throw new ParseException("--move needs --boarddir and --game");
+      }
+    } catch (ParseException | NumberFormatException e) {
+      System.err.println("Invalid Usage: " + e.getMessage());
+      HelpFormatter formatter = new HelpFormatter();
+      formatter.printHelp("com.ibm.vie.mazerunner.util.GameTrace", cmdOps, true);
+      System.exit(1);
+      return;
+    }
+
+    List<Game> games;
+    try {
+      games = read(traceFile);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+
+    if (moveCount >= 0) {
+      Game game = games.get(gameIndex);
+      PackedBoard board = replay(game, boardDir).getPackedBoard(moveCount);
+      System.out.println("Board=" + game.getBoardName() + "\nMove=" + moveCount + "\nPlayer="
+          + board.getPlayerLocation() + "\nSteps remaining=" + board.getRemainingSteps()
+          + "\nTreasures found=" + board.getObtainedTreasureCount() + "\nScore="
+          + board.getScore());
+      return;
+    }
+
+    CSVFormat format = CSVFormat.DEFAULT.builder().setHeader(CSV_HEADERS).build();
+    try (CSVPrinter printer = new CSVPrinter(new OutputStreamWriter(System.out), format)) {
+      for (int i = 0; i < games.size(); ++i) {
+        if (gameIndex >= 0 && i != gameIndex) {
+          continue;
+        }
+        Game game = games.get(i);
+        long total = 0, max = 0;
+        for (int m = 0; m < game.getMoveCount(); ++m) {
+          total += game.getMoveMicros(m);
+          max = Math.max(max, game.getMoveMicros(m));
+        }
+        String replayed = "";
+        if (boardDir != null) {
+          try {
+            replayed = Integer.toString(
+                replay(game, boardDir).getPackedBoard(game.getMoveCount()).getScore());
+          } catch (RuntimeException e) {
+            replayed = e.getMessage();
+          }
+        }
+        printer.printRecord(i, game.getJar(), game.getPlayerName(), game.getBoardName(),
+            game.getScore(), game.getFailure(), game.getMoveCount(),
+            game.getMoveCount() == 0 ? 0 : total / game.getMoveCount(), max, replayed);
+        printer.flush();
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private static Replayer replay(Game game, File boardDir) {
+    File boardFile = new File(boardDir, game.getBoardName());
+    return new Replayer(game, BoardRepository.getInstance().getBoard(boardFile));
+  }
+
+  private static void readHeader(DataInput data) throws IOException {
+    if (data.readInt() != MAGIC) {
+      throw new IOException("Not a game trace file");
+    }
+    int version = data.readUnsignedByte();
+    if (version != VERSION) {
+      throw new IOException("Unsupported game trace version " + version);
+    }
+  }
+
+  /**
+   * Checksums a board as it is at the start of a game: its size, its steps, where the player stands
+   * and the kind of every square.
+   *
+   * @param board The board
+   * @return The CRC-32 of the board
+   */
+  public static int checksumOf(IBoard board) {
+    CRC32 crc = new CRC32();
+    int[] header = {board.getWidth(), board.getHeight(), board.getMaxSteps(),
+        board.getRemainingSteps(), board.getPlayerLocation().getRow(),
+        board.getPlayerLocation().getCol()};
+    for (int value : header) {
+      crc.update(value >>> 24);
+      crc.update(value >>> 16);
+      crc.update(value >>> 8);
+      crc.update(value);
+    }
+    for (int j = 0; j < board.getHeight(); ++j) {
+      for (int i = 0; i < board.getWidth(); ++i) {
+        ISquare square = board.getSquareAt(Location.of(j, i));
+        Terrain t = Terrain.of(square);
+        crc.update(t != null ? t.getCode() : square.getTypeString().hashCode());
+      }
+    }
+    return (int) crc.getValue();
+  }
+
+  private static void writeVarint(DataOutputStream data, long value) throws IOException {
+    for (; (value & ~0x7FL) != 0; value >>>= 7) {
+      data.writeByte((int) ((value & 0x7F) | 0x80));
+    }
+    data.writeByte((int) value);
+  }
+
+  private static long readVarint(DataInputStream data) throws IOException {
+    long value = 0;
+    for (int shift = 0; shift < 64; shift += 7) {
+      int b = data.readUnsignedByte();
+      value |= (long) (b & 0x7F) << shift;
+      if ((b & 0x80) == 0) {
+        return value;
+      }
+    }
+    throw new IOException("Varint is too long");
+  }
+}
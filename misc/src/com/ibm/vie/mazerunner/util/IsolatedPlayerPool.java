@@ -0,0 +1,494 @@
+/**
+ * (C) Copyright IBM Corp. 2016,2022. All Rights Reserved. US Government Users Restricted Rights - Use,
+ * duplication or disclosure restricted by GSA ADP Schedule Contract with IBM Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.ibm.vie.mazerunner.util;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.ProcessBuilder.Redirect;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+import com.ibm.vie.mazerunner.IPlayer;
+import com.ibm.vie.mazerunner.MapBoard;
+
+/**
+ * Plays student jars in child JVMs, so a player that calls System.exit(), runs out of memory or
+ * leaks threads only takes its own worker down instead of the whole batch.
+ *
+ * A worker is a JVM running the {@link #main(String[])} of this class. It connects back
+ * to the pool over a loopback socket, and the pool sends it one board at a time and reads the
+ * result back over that connection. Student code in a worker cannot disturb it through the
+ * standard streams, even by opening FileDescriptor.out: what it prints during a game goes to the
+ * output tail of the game, anything else is discarded, and System.in is empty. A worker loads
+ * a jar through {@link StudentClassLoader} when the first board of the jar arrives, and keeps the
+ * player for the next boards of the same jar the way the sequential harness does.
+ *
+ * A worker only ever plays one jar: it is stopped when the jar is done, so the threads, static
+ * state and heap a jar leaves behind cannot slow down or crash the games of another jar. The heap
+ * of a worker is capped, and a worker that runs out of it exits. A worker is also retired after a
+ * player call overran its time budget, since the call may still be running, and after
+ * {@value #GAMES_PER_WORKER} games of its jar. A new worker is started whenever one is needed.
+ *
+ * While it plays a board, a worker tells the pool every second that it is alive. The pool gives
+ * up on a worker that stays silent for {@value #SECONDS_WITHOUT_REPLY} seconds, longer than any
+ * player call may take, and reports it like a worker that exited.
+ */
+public class IsolatedPlayerPool implements AutoCloseable {
+  /**
+   * The maximum heap of a worker when none is given.
+   */
+  public static final String DEFAULT_HEAP = "512m";
+
+  private static final int GAMES_PER_WORKER = 256;
+  private static final long SECONDS_FOR_LOAD = 10;
+  private static final long SECONDS_TO_EXIT = 5;
+  private static final long SECONDS_TO_CONNECT = 30;
+  private static final int MILLIS_BETWEEN_CONNECT_CHECKS = 200;
+  // A busy worker says it is alive this often. One that stays silent for longer than the largest
+  // player budget, with some margin, is stuck, for example thrashing in GC just under its heap cap.
+  private static final long MILLIS_BETWEEN_HEARTBEATS = 1000;
+  private static final long SECONDS_WITHOUT_REPLY = 15;
+  // Longest failure message sent back, writeUTF() cannot send more than 64KB
+  private static final int MAX_MESSAGE_LENGTH = 1024;
+
+  private static final byte PLAYED = 0;
+  private static final byte LOAD_FAILED = 1;
+  private static final byte ALIVE = 2;
+
+  // The standard streams of a worker lead nowhere, Java 8 has no Redirect.DISCARD
+  private static final File NOWHERE =
+      new File(System.getProperty("os.name").startsWith("Windows") ? "NUL" : "/dev/null");
+  private static final SecureRandom KEYS = new SecureRandom();
+
+  private final String heap;
+  private final int outputTailBytes;
+  private final Set<Worker> running = ConcurrentHashMap.newKeySet();
+
+  /**
+   * The worker playing a board exited before it finished the board. Most likely the player called
+   * System.exit() or ran out of heap.
+   */
+  public static class WorkerExitException extends Exception {
+    private static final long serialVersionUID = 1L;
+
+    WorkerExitException(String message) {
+      super(message);
+    }
+  }
+
+  /**
+   * A child JVM and the connection to it.
+   */
+  private class Worker {
+    final Process process;
+    final Socket socket;
+    final DataOutputStream requests;
+    final DataInputStream replies;
+    int games;
+
+    Worker() throws IOException {
+      try (ServerSocket server = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+        server.setSoTimeout(MILLIS_BETWEEN_CONNECT_CHECKS);
+        long key = KEYS.nextLong();
+        process = new ProcessBuilder(command(server.getLocalPort(), key))
+            .redirectInput(Redirect.from(NOWHERE)).redirectOutput(Redirect.to(NOWHERE))
+            .redirectError(Redirect.INHERIT).start();
+        try {
+          socket = accept(server);
+          socket.setTcpNoDelay(true);
+          requests = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+          replies = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+          // Anything else on this machine could have connected to the port
+          if (replies.readLong() != key) {
+            socket.close();
+            throw new IOException("Unexpected connection to the port of a worker");
+          }
+          socket.setSoTimeout((int) TimeUnit.SECONDS.toMillis(SECONDS_WITHOUT_REPLY));
+        } catch (IOException e) {
+          process.destroyForcibly();
+          throw e;
+        }
+      }
+    }
+
+    private Socket accept(ServerSocket server) throws IOException {
+      long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(SECONDS_TO_CONNECT);
+      while (true) {
+        try {
+          return server.accept();
+        } catch (SocketTimeoutException e) {
+          if (!process.isAlive() || System.nanoTime() > deadline) {
+            throw new IOException("Worker did not connect", e);
+          }
+        }
+      }
+    }
+
+    /**
+     * Closes the connection to the worker, which makes it exit, and kills it if it does not.
+     *
+     * @return The exit code of the worker
+     */
+    int stop() {
+      try {
+        socket.close();
+      } catch (IOException e) {
+        // The worker is already gone
+      }
+      try {
+        if (!process.waitFor(SECONDS_TO_EXIT, TimeUnit.SECONDS)) {
+          process.destroyForcibly().waitFor();
+        }
+      } catch (InterruptedException e) {
+        process.destroyForcibly();
+        Thread.currentThread().interrupt();
+        return -1;
+      }
+      return process.exitValue();
+    }
+  }
+
+  /**
+   * Creates a pool, no worker is started until a jar is played.
+   *
+   * @param heap The maximum heap of each worker, in the format of the -Xmx option like 512m
+   * @param outputTailBytes The number of bytes of player output kept per board
+   */
+  public IsolatedPlayerPool(String heap, int outputTailBytes) {
+    this.heap = heap;
+    this.outputTailBytes = outputTailBytes;
+  }
+
+  /**
+   * Plays a jar on boards in a worker of its own, which is stopped when the boards are played. The
+   * boards are played in order, and when the worker exits during a board the remaining boards are
+   * played in a new worker.
+   *
+   * @param jar The student jar
+   * @param boardFiles The board files to play
+   * @param warmUpBoards The number of generated boards the player plays before its first board
+   * @param warmUpResults Where the results of the warm-up boards are added
+   * @param trace Where every played game is appended, or null
+   * @return The result of every board
+   * @throws IOException If a worker cannot be started or the trace cannot be written
+   * @throws RuntimeException If the player cannot be loaded from the jar
+   */
+  public List<TestResult> play(File jar, List<File> boardFiles, int warmUpBoards,
+      Collection<TestResult> warmUpResults, GameTrace.Writer trace) throws IOException {
+    List<TestResult> results = new ArrayList<>();
+    String playerName = "";
+    Worker worker = null;
+    try {
+      for (File boardFile : boardFiles) {
+        if (worker == null) {
+          worker = new Worker();
+          running.add(worker);
+        }
+
+        TestResult result;
+        byte[] game = null;
+        try {
+          worker.requests.writeUTF(jar.getAbsolutePath());
+          worker.requests.writeUTF(boardFile.getAbsolutePath());
+          worker.requests.writeInt(warmUpBoards);
+          worker.requests.writeBoolean(trace != null);
+          worker.requests.flush();
+
+          byte reply = worker.replies.readByte();
+          while (reply == ALIVE) {
+            reply = worker.replies.readByte();
+          }
+          if (reply == LOAD_FAILED) {
+            throw new RuntimeException("Could not load MyPlayer from jar " + jar.getName() + ": "
+                + worker.replies.readUTF());
+          }
+          int warmUps = worker.replies.readInt();
+          for (int i = 0; i < warmUps; ++i) {
+            warmUpResults.add(readResult(worker.replies, jar));
+          }
+          result = readResult(worker.replies, jar);
+          if (worker.replies.readBoolean()) {
+            game = new byte[worker.replies.readInt()];
+            worker.replies.readFully(game);
+          }
+        } catch (SocketTimeoutException e) {
+          // The worker is stuck, stop it and play the next board in a new one
+          running.remove(worker);
+          result = new TestResult(jar.getName(), playerName, boardFile.getName(), 0,
+              new WorkerExitException("Worker stopped answering for " + SECONDS_WITHOUT_REPLY
+                  + " seconds, stopped with code " + worker.stop()));
+          worker = null;
+        } catch (IOException e) {
+          // The worker is gone, play the next board in a new one
+          running.remove(worker);
+          result = new TestResult(jar.getName(), playerName, boardFile.getName(), 0,
+              new WorkerExitException("Worker exited with code " + worker.stop()));
+          worker = null;
+        }
+
+        if (worker != null) {
+          ++worker.games;
+          // After a timeout the runaway call may still be running, play the next board in a new
+          // worker
+          if (isTimeout(result.getException()) || worker.games >= GAMES_PER_WORKER) {
+            retire(worker);
+            worker = null;
+          }
+        }
+        if (trace != null && game != null) {
+          trace.append(GameTrace.Game.fromBytes(game));
+        }
+        playerName = result.getStudentName();
+        results.add(result);
+      }
+    } finally {
+      // Never hand a worker to another jar
+      if (worker != null) {
+        retire(worker);
+      }
+    }
+    return results;
+  }
+
+  /**
+   * Stops every worker.
+   */
+  @Override
+  public void close() {
+    for (Worker worker : running) {
+      worker.stop();
+    }
+    running.clear();
+  }
+
+  private void retire(Worker worker) {
+    running.remove(worker);
+    worker.stop();
+  }
+
+  private List<String> command(int port, long key) {
+    List<String> command = new ArrayList<>();
+    command.add(new File(new File(System.getProperty("java.home"), "bin"), "java").getPath());
+    command.add("-Xmx" + heap);
+    command.add("-XX:+ExitOnOutOfMemoryError");
+    command.add("-cp");
+    command.add(System.getProperty("java.class.path"));
+    command.add(IsolatedPlayerPool.class.getName());
+    command.add(String.valueOf(port));
+    command.add(String.valueOf(key));
+    command.add(String.valueOf(outputTailBytes));
+    return command;
+  }
+
+  private static boolean isTimeout(Throwable failure) {
+    return failure instanceof PlayerFailure
+        && TimeoutException.class.getName().equals(((PlayerFailure) failure).getClassName());
+  }
+
+  private static TestResult readResult(DataInputStream data, File jar) throws IOException {
+    String playerName = data.readUTF();
+    String boardName = data.readUTF();
+    int score = data.readInt();
+    String failureClass = data.readUTF();
+    String failureMessage = data.readUTF();
+    LatencyHistogram analyzeLatency = LatencyHistogram.read(data);
+    LatencyHistogram moveLatency = LatencyHistogram.read(data);
+    LatencyHistogram completedLatency = LatencyHistogram.read(data);
+    byte[] outputTail = new byte[data.readInt()];
+    data.readFully(outputTail);
+    Throwable failure = failureClass.isEmpty() ? null
+        : new PlayerFailure(failureClass, failureMessage.isEmpty() ? null : failureMessage);
+    return new TestResult(jar.getName(), playerName, boardName, score, failure, analyzeLatency,
+        moveLatency, completedLatency, new String(outputTail, StandardCharsets.UTF_8));
+  }
+
+  private static void writeResult(DataOutputStream data, TestResult result) throws IOException {
+    Throwable failure = result.getException();
+    String message = failure != null && failure.getMessage() != null ? failure.getMessage() : "";
+    data.writeUTF(result.getStudentName());
+    data.writeUTF(result.getBoardName());
+    data.writeInt(result.getScore());
+    data.writeUTF(failure != null ? failure.getClass().getName() : "");
+    data.writeUTF(message.substring(0, Math.min(message.length(), MAX_MESSAGE_LENGTH)));
+    result.getAnalyzeLatency().write(data);
+    result.getMoveLatency().write(data);
+    result.getCompletedLatency().write(data);
+    byte[] outputTail = result.getOutputTail().getBytes(StandardCharsets.UTF_8);
+    data.writeInt(outputTail.length);
+    data.write(outputTail);
+  }
+
+  /**
+   * Runs a worker, which plays the boards the pool sends until the pool closes the connection.
+   * This is started by the pool and is not meant to be run by hand.
+   *
+   * @param args The port of the pool, the key to connect with and the number of bytes of player
+   *        output kept per board
+   * @throws IOException If the connection to the pool breaks
+   */
+  public static void main(String[] args) throws IOException {
+    Socket socket = new Socket(InetAddress.getLoopbackAddress(), Integer.parseInt(args[0]));
+    socket.setTcpNoDelay(true);
+    DataInputStream requests =
+        new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+    DataOutputStream replies =
+        new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+    replies.writeLong(Long.parseLong(args[1]));
+    replies.flush();
+
+    // What student code prints outside a game is discarded, and it has nothing to read
+    System.setOut(new PrintStream(new OutputStream() {
+      @Override
+      public void write(int b) {}
+
+      @Override
+      public void write(byte[] b, int off, int len) {}
+    }));
+    System.setIn(new ByteArrayInputStream(new byte[0]));
+    // Player output goes to the tail of its game, in front of the discarded stream
+    OutputRouter.install();
+    TestHarness.outputTailBytes = Integer.parseInt(args[2]);
+
+    Heartbeat heartbeat = new Heartbeat(replies);
+    Thread heartbeatThread = new Thread(heartbeat, "Worker heartbeat");
+    heartbeatThread.setDaemon(true);
+    heartbeatThread.start();
+
+    PlayerWatchdog watchdog = new PlayerWatchdog();
+    File loadedJar = null;
+    IPlayer player = null;
+    while (true) {
+      File jar;
+      try {
+        jar = new File(requests.readUTF());
+      } catch (EOFException e) {
+        break;
+      }
+      File boardFile = new File(requests.readUTF());
+      int warmUpBoards = requests.readInt();
+      boolean trace = requests.readBoolean();
+      heartbeat.busy = true;
+
+      List<TestResult> warmUps = Collections.emptyList();
+      if (!jar.equals(loadedJar)) {
+        try {
+          player = load(watchdog, jar);
+        } catch (Exception e) {
+          // Report what TestHarness.loadPlayer() could not do rather than its wrapper
+          Throwable failure = e instanceof ExecutionException ? e.getCause() : e;
+          Throwable reason = failure.getCause() != null ? failure.getCause() : failure;
+          synchronized (replies) {
+            heartbeat.busy = false;
+            replies.writeByte(LOAD_FAILED);
+            replies.writeUTF(String.valueOf(reason));
+            replies.flush();
+          }
+          continue;
+        }
+        loadedJar = jar;
+        warmUps = TestHarness.warmUp(jar.getName(), player, warmUpBoards);
+      }
+
+      MapBoard board = BoardRepository.getInstance().getBoard(boardFile);
+      GameTrace.Recorder recorder = trace ? new GameTrace.Recorder(board) : null;
+      TestResult result = TestHarness.playBoard(jar.getName(), player, board, recorder);
+
+      byte[] game = recorder == null ? null
+          : recorder.finish(jar.getName(), result.getStudentName(), board.getName(),
+              result.getScore(), result.getException()).toBytes();
+      synchronized (replies) {
+        heartbeat.busy = false;
+        replies.writeByte(PLAYED);
+        replies.writeInt(warmUps.size());
+        for (TestResult warmUp : warmUps) {
+          writeResult(replies, warmUp);
+        }
+        writeResult(replies, result);
+        replies.writeBoolean(game != null);
+        if (game != null) {
+          replies.writeInt(game.length);
+          replies.write(game);
+        }
+        replies.flush();
+      }
+    }
+
+    // Threads leaked by student code must not keep the worker alive
+    System.exit(0);
+  }
+
+  /**
+   * Tells the pool the worker is alive while it plays a board. The pool only reads between sending
+   * a board and getting its reply, so nothing is sent while the worker waits for a board.
+   */
+  private static class Heartbeat implements Runnable {
+    private final DataOutputStream replies;
+    volatile boolean busy;
+
+    Heartbeat(DataOutputStream replies) {
+      this.replies = replies;
+    }
+
+    @Override
+    public void run() {
+      try {
+        while (true) {
+          Thread.sleep(MILLIS_BETWEEN_HEARTBEATS);
+          synchronized (replies) {
+            if (busy) {
+              replies.writeByte(ALIVE);
+              replies.flush();
+            }
+          }
+        }
+      } catch (InterruptedException | IOException e) {
+        // The pool is gone, the main loop sees it on its next read
+      }
+    }
+  }
+
+  private static IPlayer load(PlayerWatchdog watchdog, File jar)
+      throws InterruptedException, ExecutionException, TimeoutException {
+    AtomicReference<IPlayer> player = new AtomicReference<>();
+    watchdog.run(budget -> {
+      budget.start(SECONDS_FOR_LOAD);
+      player.set(TestHarness.loadPlayer(jar));
+      budget.stop();
+    });
+    return player.get();
+  }
+}
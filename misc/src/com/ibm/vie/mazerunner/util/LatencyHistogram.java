@@ -0,0 +1,252 @@
+/**
+ * (C) Copyright IBM Corp. 2016,2022. All Rights Reserved. US Government Users Restricted Rights - Use,
+ * duplication or disclosure restricted by GSA ADP Schedule Contract with IBM Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.ibm.vie.mazerunner.util;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A histogram of call latencies in nanoseconds, laid out like an HdrHistogram. Values below 128
+ * get a bucket each, and every power of two above that is split into 64 buckets, so a value is
+ * known to within 1/64 (about 1.6%) of itself. Only the buckets between the smallest and largest
+ * value recorded are kept, so the moves of a game usually take a few hundred buckets instead of
+ * more than two thousand, and a histogram that recorded nothing holds no buckets at all.
+ *
+ * Values above {@link #HIGHEST_TRACKABLE_NANOS} count in the last bucket, but {@link #getMax()} is
+ * always exact. A histogram is not thread-safe, each game records into its own.
+ */
+public class LatencyHistogram {
+  /**
+   * The largest latency told apart from larger ones, a little over 18 minutes.
+   */
+  public static final long HIGHEST_TRACKABLE_NANOS = (1L << 40) - 1;
+
+  private static final int SUB_BUCKET_BITS = 7;
+  private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+  private static final int SUB_BUCKET_HALF = SUB_BUCKET_COUNT >> 1;
+  private static final int BUCKET_COUNT = indexOf(HIGHEST_TRACKABLE_NANOS) + 1;
+  // Buckets added past the recorded range when it grows, so growing is rare
+  private static final int GROWTH = SUB_BUCKET_HALF;
+  private static final long[] NO_COUNTS = new long[0];
+
+  // counts[i] is the count of bucket firstBucket + i
+  private long[] counts = NO_COUNTS;
+  private int firstBucket;
+  private long totalCount;
+  private long min = Long.MAX_VALUE;
+  private long max;
+
+  /**
+   * Records one latency.
+   *
+   * @param nanos The latency in nanoseconds, negative values count as 0
+   */
+  public void record(long nanos) {
+    long value = Math.max(0, nanos);
+    increment(indexOf(Math.min(value, HIGHEST_TRACKABLE_NANOS)), 1);
+    ++totalCount;
+    min = Math.min(min, value);
+    max = Math.max(max, value);
+  }
+
+  /**
+   * Adds every latency recorded by another histogram to this one.
+   *
+   * @param other The histogram to add
+   */
+  public void add(LatencyHistogram other) {
+    for (int i = 0; i < other.counts.length; ++i) {
+      if (other.counts[i] != 0) {
+        increment(other.firstBucket + i, other.counts[i]);
+      }
+    }
+    totalCount += other.totalCount;
+    min = Math.min(min, other.min);
+    max = Math.max(max, other.max);
+  }
+
+  /**
+   * @return A copy of this histogram, keeping no more buckets than it needs
+   */
+  public LatencyHistogram copy() {
+    LatencyHistogram copy = new LatencyHistogram();
+    int first = 0;
+    int last = counts.length - 1;
+    while (first <= last && counts[first] == 0) {
+      ++first;
+    }
+    while (last >= first && counts[last] == 0) {
+      --last;
+    }
+    if (first <= last) {
+      copy.counts = Arrays.copyOfRange(counts, first, last + 1);
+      copy.firstBucket = firstBucket + first;
+    }
+    copy.totalCount = totalCount;
+    copy.min = min;
+    copy.max = max;
+    return copy;
+  }
+
+  /**
+   * @return The number of latencies recorded
+   */
+  public long getCount() {
+    return totalCount;
+  }
+
+  /**
+   * @return The smallest latency recorded in nanoseconds, or 0 when nothing was recorded
+   */
+  public long getMin() {
+    return totalCount == 0 ? 0 : min;
+  }
+
+  /**
+   * @return The largest latency recorded in nanoseconds, or 0 when nothing was recorded
+   */
+  public long getMax() {
+    return max;
+  }
+
+  /**
+   * Gets the latency that a percentage of the recorded latencies are at or below. The answer is
+   * the top of the bucket holding it, so it overstates the exact value by at most 1/64.
+   *
+   * @param percentile The percentage, from 0 to 100
+   * @return The latency in nanoseconds, or 0 when nothing was recorded
+   */
+  public long getValueAtPercentile(double percentile) {
+    if (totalCount == 0) {
+      return 0;
+    }
+    double clamped = Math.min(100, Math.max(0, percentile));
+    long rank = Math.max(1, (long) Math.ceil(clamped / 100 * totalCount));
+    long seen = 0;
+    for (int i = 0; i < counts.length; ++i) {
+      seen += counts[i];
+      if (seen >= rank) {
+        // The last bucket also holds everything too large to track
+        int bucket = firstBucket + i;
+        long highest = bucket == BUCKET_COUNT - 1 ? max : highestValueOf(bucket);
+        return Math.max(min, Math.min(max, highest));
+      }
+    }
+    return max;
+  }
+
+  /**
+   * Gets a percentile in microseconds, see {@link #getValueAtPercentile(double)}.
+   *
+   * @param percentile The percentage, from 0 to 100
+   * @return The latency in whole microseconds
+   */
+  public long getMicrosAtPercentile(double percentile) {
+    return TimeUnit.NANOSECONDS.toMicros(getValueAtPercentile(percentile));
+  }
+
+  /**
+   * Writes the histogram to a stream, only the buckets that counted something are written.
+   *
+   * @param data The stream to write to
+   * @throws IOException If the stream cannot be written
+   */
+  void write(DataOutputStream data) throws IOException {
+    int used = 0;
+    for (long count : counts) {
+      if (count != 0) {
+        ++used;
+      }
+    }
+    data.writeLong(min);
+    data.writeLong(max);
+    data.writeInt(used);
+    for (int i = 0; i < counts.length; ++i) {
+      if (counts[i] != 0) {
+        data.writeShort(firstBucket + i);
+        data.writeLong(counts[i]);
+      }
+    }
+  }
+
+  /**
+   * Reads a histogram written by {@link #write(DataOutputStream)}.
+   *
+   * @param data The stream to read from
+   * @return The histogram
+   * @throws IOException If the stream cannot be read or does not hold a histogram
+   */
+  static LatencyHistogram read(DataInputStream data) throws IOException {
+    LatencyHistogram histogram = new LatencyHistogram();
+    histogram.min = data.readLong();
+    histogram.max = data.readLong();
+    int used = data.readInt();
+    for (int n = 0; n < used; ++n) {
+      int index = data.readUnsignedShort();
+      if (index >= BUCKET_COUNT) {
+        throw new IOException("Invalid latency bucket " + index);
+      }
+      long count = data.readLong();
+      histogram.increment(index, count);
+      histogram.totalCount += count;
+    }
+    return histogram;
+  }
+
+  private void increment(int bucket, long count) {
+    int index = bucket - firstBucket;
+    if (counts.length == 0) {
+      counts = new long[1];
+      firstBucket = bucket;
+      index = 0;
+    } else if (index < 0 || index >= counts.length) {
+      // Grow the kept range to take in the bucket, with some room to spare on that side
+      int first = Math.min(firstBucket, index < 0 ? Math.max(0, bucket - GROWTH) : firstBucket);
+      int last = Math.max(firstBucket + counts.length - 1,
+          index < 0 ? firstBucket : Math.min(BUCKET_COUNT - 1, bucket + GROWTH));
+      long[] grown = new long[last - first + 1];
+      System.arraycopy(counts, 0, grown, firstBucket - first, counts.length);
+      counts = grown;
+      firstBucket = first;
+      index = bucket - first;
+    }
+    counts[index] += count;
+  }
+
+  private static int indexOf(long value) {
+    int shift = Math.max(0, 64 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS);
+    int subBucket = (int) (value >>> shift);
+    return shift == 0 ? subBucket : shift * SUB_BUCKET_HALF + subBucket;
+  }
+
+  private static long highestValueOf(int index) {
+    if (index < SUB_BUCKET_COUNT) {
+      return index;
+    }
+    int shift = index / SUB_BUCKET_HALF - 1;
+    long subBucket = index - shift * SUB_BUCKET_HALF;
+    return ((subBucket + 1) << shift) - 1;
+  }
+
+  @Override
+  public String toString() {
+    return "count=" + totalCount + " p50=" + getMicrosAtPercentile(50) + "us p99="
+        + getMicrosAtPercentile(99) + "us max=" + TimeUnit.NANOSECONDS.toMicros(max) + "us";
+  }
+}
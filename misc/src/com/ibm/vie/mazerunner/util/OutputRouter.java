@@ -0,0 +1,234 @@
+/**
+ * (C) Copyright IBM Corp. 2016,2022. All Rights Reserved. US Government Users Restricted Rights - Use,
+ * duplication or disclosure restricted by GSA ADP Schedule Contract with IBM Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.ibm.vie.mazerunner.util;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.UnsupportedEncodingException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Sends what each thread writes to System.out where that thread belongs, so player output can be
+ * captured while several boards run at once.
+ *
+ * Nothing is routed until {@link #install()} is called, which the command line harness does when
+ * it starts. Once installed, the router is System.out for good, and it encodes text as UTF-8 so a
+ * tail can be read back the same way on every platform. A thread that was given a {@link Tail} with
+ * {@link #route(Tail)} writes into it, and so do the threads it starts afterwards. Every other
+ * thread writes to the console as before. A tail only keeps the last bytes written to it, so a
+ * player printing every move costs a copy per print instead of an ever growing buffer.
+ *
+ * A thread inherits the tail of the thread that created it, whatever pool it ends up in. Shared
+ * threads first created during a game, such as the common pool workers behind a parallel stream or
+ * {@link com.ibm.vie.mazerunner.TreasureDistanceMatrix}, keep that game's tail for as long as they
+ * live. Once its game is over a tail is closed and discards what those threads still write, so it
+ * is never mixed into another game's output, but the output of later games on such a thread is
+ * lost rather than captured.
+ */
+public final class OutputRouter extends OutputStream {
+  private static volatile OutputRouter instance;
+
+  private final PrintStream console;
+  private final InheritableThreadLocal<Tail> tails = new InheritableThreadLocal<>();
+
+  /**
+   * The last bytes written by the threads of one game. A tail of capacity 0 keeps nothing and only
+   * counts the bytes.
+   */
+  public static final class Tail {
+    private final byte[] buffer;
+    private long written;
+    private boolean closed;
+
+    /**
+     * Creates an empty tail.
+     *
+     * @param capacity The number of bytes kept, 0 to discard everything
+     */
+    public Tail(int capacity) {
+      buffer = new byte[Math.max(0, capacity)];
+    }
+
+    synchronized void write(int b) {
+      if (closed) {
+        return;
+      }
+      if (buffer.length > 0) {
+        buffer[(int) (written % buffer.length)] = (byte) b;
+      }
+      ++written;
+    }
+
+    synchronized void write(byte[] b, int off, int len) {
+      if (closed) {
+        return;
+      }
+      if (len > buffer.length) {
+        // Only the end of a long write is kept
+        written += len - buffer.length;
+        off += len - buffer.length;
+        len = buffer.length;
+      }
+      if (len == 0) {
+        return;
+      }
+      int position = (int) (written % buffer.length);
+      int first = Math.min(len, buffer.length - position);
+      System.arraycopy(b, off, buffer, position, first);
+      System.arraycopy(b, off + first, buffer, 0, len - first);
+      written += len;
+    }
+
+    /**
+     * Ends the game of the tail. What is written from then on, by threads that outlived the game,
+     * is dropped.
+     */
+    synchronized void close() {
+      closed = true;
+    }
+
+    /**
+     * @return A UTF-8 stream that writes into the tail, for swapping System.out when no router is
+     *         installed
+     */
+    PrintStream newPrintStream() {
+      try {
+        return new PrintStream(new OutputStream() {
+          @Override
+          public void write(int b) {
+            Tail.this.write(b);
+          }
+
+          @Override
+          public void write(byte[] b, int off, int len) {
+            Tail.this.write(b, off, len);
+          }
+        }, true, StandardCharsets.UTF_8.name());
+      } catch (UnsupportedEncodingException e) {
+        throw new IllegalStateException("UTF-8 is always supported", e);
+      }
+    }
+
+    /**
+     * @return The number of bytes written to the tail, including the ones no longer kept
+     */
+    public synchronized long getWrittenBytes() {
+      return written;
+    }
+
+    /**
+     * @return The bytes kept, oldest first
+     */
+    public synchronized byte[] toByteArray() {
+      int size = (int) Math.min(written, buffer.length);
+      byte[] bytes = new byte[size];
+      if (size > 0) {
+        int start = (int) ((written - size) % buffer.length);
+        int first = Math.min(size, buffer.length - start);
+        System.arraycopy(buffer, start, bytes, 0, first);
+        System.arraycopy(buffer, 0, bytes, first, size - first);
+      }
+      return bytes;
+    }
+
+    /**
+     * @return The bytes kept as UTF-8 text, a character cut at the start may be garbled
+     */
+    @Override
+    public String toString() {
+      return new String(toByteArray(), StandardCharsets.UTF_8);
+    }
+  }
+
+  private OutputRouter(PrintStream console) {
+    this.console = console;
+  }
+
+  /**
+   * Makes the router System.out, the first time it is called.
+   *
+   * @return The router
+   */
+  public static synchronized OutputRouter install() {
+    if (instance == null) {
+      OutputRouter router = new OutputRouter(System.out);
+      try {
+        System.setOut(new PrintStream(router, true, StandardCharsets.UTF_8.name()));
+      } catch (UnsupportedEncodingException e) {
+        throw new IllegalStateException("UTF-8 is always supported", e);
+      }
+      instance = router;
+    }
+    return instance;
+  }
+
+  /**
+   * @return The router, or null when it was not installed
+   */
+  public static OutputRouter getInstance() {
+    return instance;
+  }
+
+  /**
+   * @return The System.out the router replaced
+   */
+  public PrintStream getConsole() {
+    return console;
+  }
+
+  /**
+   * Sends the output of the calling thread, and of the threads it starts from now on, to a tail.
+   *
+   * @param tail The tail to write to
+   */
+  public void route(Tail tail) {
+    tails.set(tail);
+  }
+
+  /**
+   * Sends the output of the calling thread back to the console.
+   */
+  public void unroute() {
+    tails.remove();
+  }
+
+  @Override
+  public void write(int b) {
+    Tail tail = tails.get();
+    if (tail != null) {
+      tail.write(b);
+    } else {
+      console.write(b);
+    }
+  }
+
+  @Override
+  public void write(byte[] b, int off, int len) {
+    Tail tail = tails.get();
+    if (tail != null) {
+      tail.write(b, off, len);
+    } else {
+      console.write(b, off, len);
+    }
+  }
+
+  @Override
+  public void flush() {
+    if (tails.get() == null) {
+      console.flush();
+    }
+  }
+}
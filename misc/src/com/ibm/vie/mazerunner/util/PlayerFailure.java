@@ -0,0 +1,60 @@
+/**
+ * (C) Copyright IBM Corp. 2016,2022. All Rights Reserved. US Government Users Restricted Rights - Use,
+ * duplication or disclosure restricted by GSA ADP Schedule Contract with IBM Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.ibm.vie.mazerunner.util;
+
+/**
+ * A failure of a player that ran in another JVM. The exception stays in the JVM that threw it, its
+ * class may only exist in the student jar, so only the name of its class and its message are known
+ * here.
+ */
+public class PlayerFailure extends Exception {
+  private static final long serialVersionUID = 1L;
+
+  private final String className;
+
+  /**
+   * Creates the failure.
+   *
+   * @param className The name of the class of the exception the player threw
+   * @param message The message of the exception, or null
+   */
+  public PlayerFailure(String className, String message) {
+    super(message);
+    this.className = className;
+  }
+
+  /**
+   * @return The name of the class of the exception the player threw
+   */
+  public String getClassName() {
+    return className;
+  }
+
+  /**
+   * @return The name of the class of the exception without its package or enclosing classes, like
+   *         {@link Class#getSimpleName()}
+   */
+  public String getSimpleClassName() {
+    int separator = Math.max(className.lastIndexOf('.'), className.lastIndexOf('$'));
+    return className.substring(separator + 1);
+  }
+
+  @Override
+  public String toString() {
+    String message = getLocalizedMessage();
+    return message != null ? className + ": " + message : className;
+  }
+}
@@ -0,0 +1,172 @@
+/**
+ * (C) Copyright IBM Corp. 2016,2022. All Rights Reserved. US Government Users Restricted Rights - Use,
+ * duplication or disclosure restricted by GSA ADP Schedule Contract with IBM Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.ibm.vie.mazerunner.util;
+
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Enforces the time budgets of student code.
+ *
+ * A whole game (analyze, every move and completion) runs on one worker thread, and the worker
+ * arms a {@link Budget} before each call into the player. A single scheduler thread shared by every
+ * game checks the armed budgets, so no thread handoff is needed per move. When a call overruns, its
+ * game is abandoned and the worker is interrupted, the same way shutdownNow() would.
+ *
+ * Worker threads are daemons, so a runaway player that ignores the interrupt cannot keep the JVM
+ * alive.
+ */
+public class PlayerWatchdog {
+  private static final long TICK_MILLIS = 10;
+
+  private final ExecutorService workers;
+  private final ScheduledExecutorService scheduler;
+  private final Set<Budget> running = ConcurrentHashMap.newKeySet();
+
+  /**
+   * A game to play under the watchdog.
+   */
+  public interface TimedGame {
+    /**
+     * Plays the game, calling {@link Budget#start(long)} before every call into the player.
+     *
+     * @param budget The budget of the game
+     * @throws Exception Any problem with the student solution
+     */
+    public void play(Budget budget) throws Exception;
+  }
+
+  /**
+   * The time budget of the player call a game is currently making.
+   */
+  public static class Budget {
+    private static final long DISARMED = 0;
+
+    private volatile long deadline = DISARMED;
+    private final CompletableFuture<Void> outcome = new CompletableFuture<>();
+
+    private Budget() {}
+
+    /**
+     * Starts timing a new player call.
+     *
+     * @param seconds The number of seconds the call may take
+     * @throws TimeoutException If the previous call overran its budget
+     */
+    public void start(long seconds) throws TimeoutException {
+      stop();
+      deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+    }
+
+    /**
+     * Stops timing the current player call.
+     *
+     * @throws TimeoutException If the call overran its budget
+     */
+    public void stop() throws TimeoutException {
+      if (isExpired(System.nanoTime())) {
+        throw new TimeoutException();
+      }
+      deadline = DISARMED;
+    }
+
+    private boolean isExpired(long now) {
+      long current = deadline;
+      return current != DISARMED && now - current > 0;
+    }
+  }
+
+  /**
+   * Creates a watchdog with its own worker and scheduler threads.
+   */
+  public PlayerWatchdog() {
+    workers = Executors.newCachedThreadPool(daemonThreads("player-worker-"));
+    scheduler = Executors.newSingleThreadScheduledExecutor(daemonThreads("player-watchdog-"));
+    scheduler.scheduleAtFixedRate(this::expireOverrunningGames, TICK_MILLIS, TICK_MILLIS,
+        TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Plays a game on a worker thread and waits for it to finish or to overrun one of its budgets.
+   *
+   * @param game The game to play
+   * @throws InterruptedException If the calling thread was interrupted while waiting
+   * @throws ExecutionException If the game threw an exception, which is the cause
+   * @throws TimeoutException If a player call overran its budget
+   */
+  public void run(final TimedGame game)
+      throws InterruptedException, ExecutionException, TimeoutException {
+    final Budget budget = new Budget();
+    running.add(budget);
+    Future<?> worker = workers.submit(() -> {
+      try {
+        game.play(budget);
+        budget.outcome.complete(null);
+      } catch (Throwable t) {
+        budget.outcome.completeExceptionally(t);
+      }
+    });
+
+    try {
+      budget.outcome.get();
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof TimeoutException) {
+        throw (TimeoutException) e.getCause();
+      }
+      throw e;
+    } finally {
+      running.remove(budget);
+      // Abandon runaway student code
+      worker.cancel(true);
+    }
+  }
+
+  /**
+   * Stops the watchdog threads, interrupting any game still running.
+   */
+  public void shutdown() {
+    scheduler.shutdownNow();
+    workers.shutdownNow();
+  }
+
+  private void expireOverrunningGames() {
+    long now = System.nanoTime();
+    for (Budget budget : running) {
+      if (budget.isExpired(now)) {
+        budget.outcome.completeExceptionally(new TimeoutException());
+      }
+    }
+  }
+
+  private static ThreadFactory daemonThreads(final String prefix) {
+    final AtomicInteger count = new AtomicInteger();
+    return r -> {
+      Thread t = new Thread(r, prefix + count.incrementAndGet());
+      t.setDaemon(true);
+      return t;
+    };
+  }
+}
@@ -0,0 +1,405 @@
+/**
+ * (C) Copyright IBM Corp. 2016,2022. All Rights Reserved. US Government Users Restricted Rights - Use,
+ * duplication or disclosure restricted by GSA ADP Schedule Contract with IBM Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.ibm.vie.mazerunner.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.CommandLineParser;
+import org.apache.commons.cli.DefaultParser;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Option;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVPrinter;
+import com.ibm.vie.mazerunner.IAnalysisBoard;
+import com.ibm.vie.mazerunner.Location;
+import com.ibm.vie.mazerunner.MapBoard;
+import com.ibm.vie.mazerunner.ShortestPaths;
+import com.ibm.vie.mazerunner.TreasureDistanceMatrix;
+import com.ibm.vie.mazerunner.squares.Terrain;
+
+/**
+ * Finds the order to collect the treasures of a board in that gives the highest score, to compare
+ * student results against.
+ * 
+ * Collecting every treasure scores the remaining steps plus 500 on top of 100 per treasure, so the
+ * best route is the cheapest tour of the treasures. Boards with up to {@value #EXACT_TREASURES}
+ * reachable treasures are solved exactly with the Held-Karp algorithm. Larger boards start from a
+ * nearest-treasure tour and improve it with 2-opt and Or-opt moves until no move helps or the time
+ * budget runs out, so their score is a lower bound of the best possible one.
+ * 
+ * When the steps do not last for every treasure, the route collects as many as it can.
+ * 
+ * java -cp "commons-cli-1.5.0.jar:commons-csv-1.9.0.jar:javacsv.jar:treasurehunt.jar"
+ * com.ibm.vie.mazerunner.util.RouteSolver -b=../boards -t=5
+ */
+public class RouteSolver {
+  /**
+   * The largest number of treasures solved exactly.
+   */
+  public static final int EXACT_TREASURES = 16;
+
+  private static final String[] CSV_HEADERS =
+      {"Board Name", "Treasures", "Max Steps", "Route Cost", "Collected", "Max Score", "Optimal"};
+
+  /**
+   * An order to collect treasures in and the score it earns.
+   */
+  public static class Route {
+    private final List<Location> treasures;
+    private final int cost;
+    private final int score;
+    private final boolean optimal;
+
+    private Route(List<Location> treasures, int cost, int score, boolean optimal) {
+      this.treasures = Collections.unmodifiableList(treasures);
+      this.cost = cost;
+      this.score = score;
+      this.optimal = optimal;
+    }
+
+    /**
+     * @return The locations of the collected treasures, in the order they are collected
+     */
+    public List<Location> getTreasures() {
+      return treasures;
+    }
+
+    /**
+     * @return The steps it takes to collect the treasures
+     */
+    public int getCost() {
+      return cost;
+    }
+
+    /**
+     * @return The score of the board after collecting the treasures
+     */
+    public int getScore() {
+      return score;
+    }
+
+    /**
+     * @return true if no route scores higher, false if the route was found by the heuristic
+     */
+    public boolean isOptimal() {
+      return optimal;
+    }
+  }
+
+  private final TreasureDistanceMatrix matrix;
+  private final int maxSteps;
+  private final int treasureCount;
+  // Matrix indexes of the treasures reachable from the start
+  private final int[] reachable;
+
+  private RouteSolver(IAnalysisBoard board) {
+    matrix = TreasureDistanceMatrix.of(board);
+    maxSteps = board.getMaxSteps();
+    treasureCount = board.getTreasures().size();
+
+    int[] indexes = new int[treasureCount];
+    int count = 0;
+    for (int i = 1; i < matrix.size(); ++i) {
+      if (matrix.getCost(0, i) != ShortestPaths.UNREACHABLE) {
+        indexes[count++] = i;
+      }
+    }
+    reachable = Arrays.copyOf(indexes, count);
+  }
+
+  /**
+   * Finds the route with the highest score on a board, from its starting location.
+   * 
+   * @param board The board to solve
+   * @param timeBudgetMillis How long the heuristic may improve the route of a large board
+   * @return The best route found
+   */
+  public static Route solve(IAnalysisBoard board, long timeBudgetMillis) {
+    RouteSolver solver = new RouteSolver(board);
+    if (solver.reachable.length <= EXACT_TREASURES) {
+      return solver.heldKarp();
+    }
+    return solver.improve(solver.nearestTreasureTour(),
+        System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeBudgetMillis));
+  }
+
+  private int cost(int from, int to) {
+    return matrix.getCost(from, to);
+  }
+
+  /**
+   * Whether the player can still make the last move onto a treasure: the game ends once no steps
+   * remain, but the move that uses up the steps is still made.
+   */
+  private boolean canReach(int cost) {
+    return cost - Terrain.TREASURE.getStepCost() < maxSteps;
+  }
+
+  private int score(int collected, int cost) {
+    if (collected == treasureCount) {
+      return Math.max(0, maxSteps - cost) + collected * 100 + 500;
+    }
+    return collected * 100;
+  }
+
+  /**
+   * Held-Karp: the cheapest cost of visiting every subset of the treasures, ending at each treasure
+   * of the subset. Bit j of a subset stands for reachable[j].
+   */
+  private Route heldKarp() {
+    final int n = reachable.length;
+    final int[] best = new int[(1 << n) * Math.max(1, n)];
+    Arrays.fill(best, Integer.MAX_VALUE);
+    for (int j = 0; j < n; ++j) {
+      best[(1 << j) * n + j] = cost(0, reachable[j]);
+    }
+
+    int bestSubset = 0, bestLast = -1;
+    int bestScore = score(0, 0);
+    for (int subset = 1; subset < (1 << n); ++subset) {
+      int collected = Integer.bitCount(subset);
+      for (int j = 0; j < n; ++j) {
+        int cost = best[subset * n + j];
+        if (cost == Integer.MAX_VALUE || !canReach(cost)) {
+          continue; // A route that runs out of steps cannot go further
+        }
+
+        int score = score(collected, cost);
+        if (score > bestScore) {
+          bestScore = score;
+          bestSubset = subset;
+          bestLast = j;
+        }
+
+        for (int k = 0; k < n; ++k) {
+          if ((subset & (1 << k)) == 0) {
+            int index = (subset | (1 << k)) * n + k;
+            best[index] = Math.min(best[index], cost + cost(reachable[j], reachable[k]));
+          }
+        }
+      }
+    }
+
+    // Walk back through the subsets to recover the order
+    List<Location> order = new ArrayList<>();
+    int cost = bestLast < 0 ? 0 : best[bestSubset * n + bestLast];
+    for (int subset = bestSubset, j = bestLast; j >= 0;) {
+      order.add(matrix.getLocations().get(reachable[j]));
+      int remaining = best[subset * n + j];
+      int previousSubset = subset & ~(1 << j);
+      int previous = -1;
+      for (int i = 0; i < n && previousSubset != 0; ++i) {
+        if ((previousSubset & (1 << i)) != 0 && best[previousSubset * n + i] != Integer.MAX_VALUE
+            && best[previousSubset * n + i] + cost(reachable[i], reachable[j]) == remaining) {
+          previous = i;
+          break;
+        }
+      }
+      subset = previousSubset;
+      j = previous;
+    }
+    Collections.reverse(order);
+    return new Route(order, cost, bestScore, true);
+  }
+
+  /**
+   * Starts a tour by always going to the cheapest treasure not collected yet. Element 0 of the
+   * tour is the start.
+   */
+  private int[] nearestTreasureTour() {
+    int[] tour = new int[reachable.length + 1];
+    boolean[] visited = new boolean[matrix.size()];
+    for (int position = 1; position < tour.length; ++position) {
+      int from = tour[position - 1];
+      int next = -1;
+      for (int candidate : reachable) {
+        if (!visited[candidate] && (next < 0 || cost(from, candidate) < cost(from, next))) {
+          next = candidate;
+        }
+      }
+      visited[next] = true;
+      tour[position] = next;
+    }
+    return tour;
+  }
+
+  /**
+   * Applies improving 2-opt and Or-opt moves until there are none left or time runs out. The tour
+   * is an open path that never returns to the start.
+   */
+  private Route improve(int[] tour, long deadline) {
+    boolean improved = true;
+    while (improved && System.nanoTime() - deadline < 0) {
+      improved = twoOpt(tour, deadline) | orOpt(tour, deadline);
+    }
+    return evaluate(tour);
+  }
+
+  /**
+   * Reverses tour[i..k] when that shortens the tour. Step costs of treasures are all equal, so the
+   * costs inside the reversed part do not change and only its two ends need checking.
+   */
+  private boolean twoOpt(int[] tour, long deadline) {
+    final int last = tour.length - 1;
+    boolean improved = false;
+    for (int i = 1; i < last && System.nanoTime() - deadline < 0; ++i) {
+      for (int k = i + 1; k <= last; ++k) {
+        long delta = (long) cost(tour[i - 1], tour[k]) - cost(tour[i - 1], tour[i]);
+        if (k < last) {
+          delta += (long) cost(tour[i], tour[k + 1]) - cost(tour[k], tour[k + 1]);
+        }
+        if (delta < 0) {
+          for (int a = i, b = k; a < b; ++a, --b) {
+            int swap = tour[a];
+            tour[a] = tour[b];
+            tour[b] = swap;
+          }
+          improved = true;
+        }
+      }
+    }
+    return improved;
+  }
+
+  /**
+   * Moves runs of up to three treasures to a cheaper place in the tour, keeping their order.
+   */
+  private boolean orOpt(int[] tour, long deadline) {
+    final int last = tour.length - 1;
+    boolean improved = false;
+    for (int length = 1; length <= 3; ++length) {
+      for (int i = 1; i + length - 1 <= last && System.nanoTime() - deadline < 0; ++i) {
+        int first = tour[i];
+        int end = tour[i + length - 1];
+        int before = tour[i - 1];
+        boolean atEnd = i + length - 1 == last;
+        int after = atEnd ? -1 : tour[i + length];
+
+        long removed = cost(before, first) + (atEnd ? 0 : (long) cost(end, after) - cost(before, after));
+
+        for (int p = 0; p <= last; ++p) {
+          if (p >= i - 1 && p <= i + length - 1) {
+            continue; // Inserting next to itself changes nothing
+          }
+          boolean insertAtEnd = p == last;
+          long added = (long) cost(tour[p], first)
+              + (insertAtEnd ? 0 : (long) cost(end, tour[p + 1]) - cost(tour[p], tour[p + 1]));
+          if (added < removed) {
+            moveRun(tour, i, length, p);
+            improved = true;
+            break;
+          }
+        }
+      }
+    }
+    return improved;
+  }
+
+  /**
+   * Moves tour[i..i+length-1] so that it follows the element now at position p.
+   */
+  private static void moveRun(int[] tour, int i, int length, int p) {
+    int[] run = Arrays.copyOfRange(tour, i, i + length);
+    if (p < i) {
+      System.arraycopy(tour, p + 1, tour, p + 1 + length, i - p - 1);
+      System.arraycopy(run, 0, tour, p + 1, length);
+    } else {
+      System.arraycopy(tour, i + length, tour, i, p - i - length + 1);
+      System.arraycopy(run, 0, tour, p - length + 1, length);
+    }
+  }
+
+  /**
+   * Follows the tour for as long as the steps last.
+   */
+  private Route evaluate(int[] tour) {
+    List<Location> order = new ArrayList<>();
+    int cost = 0;
+    for (int position = 1; position < tour.length; ++position) {
+      int next = cost + cost(tour[position - 1], tour[position]);
+      if (!canReach(next)) {
+        break;
+      }
+      cost = next;
+      order.add(matrix.getLocations().get(tour[position]));
+    }
+    return new Route(order, cost, score(order.size(), cost), false);
+  }
+
+  public static void main(String[] args) {
+    Options cmdOps = new Options();
+    cmdOps.addOption(Option.builder("b") //
+        .longOpt("boarddir") //
+        .argName("dir") //
+        .hasArg() //
+        .desc("Directory with Board csvs") //
+        .valueSeparator('=') //
+        .required() //
+        .build());
+    cmdOps.addOption(Option.builder("t") //
+        .longOpt("time") //
+        .argName("seconds") //
+        .hasArg() //
+        .desc("Seconds to improve the route of a board with many treasures, defaults to 5") //
+        .valueSeparator('=') //
+        .build());
+
+    CommandLineParser parser = new DefaultParser();
+    File boardDir;
+    long timeBudgetMillis;
+    try {
+      CommandLine line = parser.parse(cmdOps, args);
+      boardDir = new File(line.getOptionValue("b"));
+      timeBudgetMillis = TimeUnit.SECONDS.toMillis(Long.parseLong(line.getOptionValue("t", "5")));
+    } catch (ParseException | NumberFormatException e) {
+      System.err.println("Invalid Usage: " + e.getMessage());
+      HelpFormatter formatter = new HelpFormatter();
+      formatter.printHelp("com.ibm.vie.mazerunner.util.RouteSolver", cmdOps, true);
+      System.exit(1);
+      return;
+    }
+
+    if (!boardDir.isDirectory()) {
+      throw new RuntimeException(
+          "The specified base directory for boards does not appear to be valid: " + boardDir);
+    }
+    File[] boardFiles = boardDir.listFiles(file -> file.getName().toLowerCase().endsWith(".csv"));
+    Arrays.sort(boardFiles);
+
+    CSVFormat format = CSVFormat.DEFAULT.builder().setHeader(CSV_HEADERS).build();
+    try (CSVPrinter printer = new CSVPrinter(new OutputStreamWriter(System.out), format)) {
+      for (File boardFile : boardFiles) {
+        MapBoard board = MapBoard.parseBoard(boardFile.getAbsolutePath());
+        Route route = solve(board, timeBudgetMillis);
+        printer.printRecord(board.getName(), board.getTreasures().size(), board.getMaxSteps(),
+            route.getCost(), route.getTreasures().size(), route.getScore(), route.isOptimal());
+        printer.flush();
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+}
@@ -17,73 +17,107 @@ package com.ibm.vie.mazerunner.util;
 
 import java.io.ByteArrayOutputStream;
 import java.io.File;
-import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.UncheckedIOException;
-import java.net.MalformedURLException;
+import java.lang.ref.WeakReference;
+import java.net.URISyntaxException;
 import java.net.URL;
 import java.net.URLClassLoader;
-import java.net.URLConnection;
 import java.security.CodeSource;
-import java.security.PermissionCollection;
 import java.security.Permissions;
 import java.security.ProtectionDomain;
 import java.security.cert.Certificate;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
 import com.ibm.vie.mazerunner.IPlayer;
 
 /**
  * Class loader to load a student solution and dependent classes from a jar. Classes not in the jar
  * will be loaded from the parent class path
- * 
- * 
+ *
+ * A jar is opened once for all of its loaders alive at the same time: its class entries are
+ * indexed and their bytes read in bulk when the first of them is created, and the others define
+ * their classes from those bytes. The bytes are only held weakly between loaders, so they go once
+ * no loader of the jar is left and the jar is read again the next time. The jar is checked against
+ * its modification time and length, so a jar that changed on disk is read again. A class is
+ * defined at most once per loader, later lookups return the class already defined.
+ *
  * @author ntl
  *
  */
 public class StudentClassLoader extends URLClassLoader {
-  private final URL jar;
+  private static final String CLASS_SUFFIX = ".class";
+  private static final int BUFFER_SIZE = 8192;
 
+  private static final Map<String, WeakReference<JarClasses>> jars = new HashMap<>();
 
-  public StudentClassLoader(final URL jar) throws MalformedURLException {
+  static {
+    registerAsParallelCapable();
+  }
+
+  private final URL jar;
+  private final JarClasses classes;
+  private final ProtectionDomain domain;
+
+  /**
+   * The class bytes of a jar and the state of the file they were read from.
+   */
+  private static class JarClasses {
+    final long lastModified;
+    final long length;
+    final Map<String, byte[]> bytes;
+
+    JarClasses(long lastModified, long length, Map<String, byte[]> bytes) {
+      this.lastModified = lastModified;
+      this.length = length;
+      this.bytes = bytes;
+    }
+  }
+
+  /**
+   * Creates a loader for the classes of a jar.
+   *
+   * @param jar The URL of the jar file
+   * @throws IOException If the jar cannot be read
+   */
+  public StudentClassLoader(final URL jar) throws IOException {
     super(new URL[] {jar});
     this.jar = jar;
+    this.classes = getClasses(toFile(jar));
+    this.domain = new ProtectionDomain(new CodeSource(jar, new Certificate[] {}),
+        new Permissions());
   }
 
   @Override
-  public Class<?> loadClass(String name) throws ClassNotFoundException {
+  protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
     if (name.startsWith("com.ibm")) {
       return StudentClassLoader.class.getClassLoader().loadClass(name);
     }
 
-    try {
-      URL classUrl = new URL("jar:" + jar.toString() + "!/" + name.replace('.', '/') + ".class");
-      URLConnection connection = classUrl.openConnection();
-
-      try (InputStream input = connection.getInputStream()) {
-        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
-        int data = input.read();
+    byte[] classData = classes.bytes.get(name);
+    if (classData == null) {
+      return super.loadClass(name, resolve);
+    }
 
-        while (data != -1) {
-          buffer.write(data);
-          data = input.read();
+    synchronized (getClassLoadingLock(name)) {
+      Class<?> clazz = findLoadedClass(name);
+      if (clazz == null) {
+        try {
+          clazz = defineClass(name, classData, 0, classData.length, domain);
+        } catch (LinkageError | SecurityException e) {
+          throw new ClassNotFoundException(
+              "Unable to load class " + name + " from " + jar.toString(), e);
         }
-
-        byte[] classData = buffer.toByteArray();
-
-        CodeSource source = new CodeSource(classUrl, new Certificate[] {});
-        PermissionCollection permissions = new Permissions();
-        return defineClass(name, classData, 0, classData.length,
-            new ProtectionDomain(source, permissions));
-
       }
-
-
-    } catch (FileNotFoundException e) {
-      return super.loadClass(name);
-    } catch (Exception e) {
-
-      throw new ClassNotFoundException("Unable to load class " + name + " from " + jar.toString(),
-          e);
+      if (resolve) {
+        resolveClass(clazz);
+      }
+      return clazz;
     }
   }
 
@@ -98,4 +132,79 @@ public class StudentClassLoader extends URLClassLoader {
       throw new UncheckedIOException(e);
     }
   }
+
+  private static File toFile(URL jar) throws IOException {
+    try {
+      return new File(jar.toURI());
+    } catch (URISyntaxException | IllegalArgumentException e) {
+      throw new IOException("Not a jar file " + jar, e);
+    }
+  }
+
+  private static JarClasses getClasses(File jarFile) throws IOException {
+    String path = jarFile.getCanonicalPath();
+
+    // Read before the jar, so a change made while reading is seen next time
+    long lastModified = jarFile.lastModified();
+    long length = jarFile.length();
+
+    JarClasses classes = null;
+    synchronized (jars) {
+      WeakReference<JarClasses> cached = jars.get(path);
+      if (cached != null) {
+        classes = cached.get();
+      }
+    }
+    if (classes == null || classes.lastModified != lastModified || classes.length != length) {
+      classes = new JarClasses(lastModified, length, readClasses(jarFile));
+      synchronized (jars) {
+        jars.put(path, new WeakReference<>(classes));
+      }
+    }
+    return classes;
+  }
+
+  private static Map<String, byte[]> readClasses(File jarFile) throws IOException {
+    Map<String, byte[]> bytes = new HashMap<>();
+    try (JarFile jar = new JarFile(jarFile)) {
+      Enumeration<JarEntry> entries = jar.entries();
+      while (entries.hasMoreElements()) {
+        JarEntry entry = entries.nextElement();
+        String entryName = entry.getName();
+        if (entry.isDirectory() || !entryName.endsWith(CLASS_SUFFIX)) {
+          continue;
+        }
+        String className = entryName.substring(0, entryName.length() - CLASS_SUFFIX.length())
+            .replace('/', '.');
+        try (InputStream input = jar.getInputStream(entry)) {
+          bytes.put(className, readFully(input, entry.getSize()));
+        }
+      }
+    }
+    return Collections.unmodifiableMap(bytes);
+  }
+
+  private static byte[] readFully(InputStream input, long size) throws IOException {
+    if (size >= 0 && size <= Integer.MAX_VALUE) {
+      byte[] data = new byte[(int) size];
+      int offset = 0;
+      while (offset < data.length) {
+        int read = input.read(data, offset, data.length - offset);
+        if (read < 0) {
+          throw new IOException("Truncated jar entry");
+        }
+        offset += read;
+      }
+      return data;
+    }
+
+    // The size of the entry is not recorded, read it in chunks
+    ByteArrayOutputStream buffer = new ByteArrayOutputStream(BUFFER_SIZE);
+    byte[] chunk = new byte[BUFFER_SIZE];
+    int read;
+    while ((read = input.read(chunk)) >= 0) {
+      buffer.write(chunk, 0, read);
+    }
+    return buffer.toByteArray();
+  }
 }
@@ -15,23 +15,27 @@
 
 package com.ibm.vie.mazerunner.util;
 
-import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.io.PrintStream;
 import java.io.UncheckedIOException;
 import java.lang.reflect.InvocationTargetException;
-import java.net.MalformedURLException;
 import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
-import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import org.apache.commons.cli.CommandLine;
 import org.apache.commons.cli.CommandLineParser;
@@ -58,7 +62,9 @@ import org.apache.commons.cli.ParseException;
  * TestHarness has to exist in the default package so it can "see" MyPlayer Three is no way to
  * "import" the default package
  */
+import com.ibm.vie.mazerunner.BinaryBoardFile;
 import com.ibm.vie.mazerunner.IPlayer;
+import com.ibm.vie.mazerunner.Location;
 import com.ibm.vie.mazerunner.MapBoard;
 import com.ibm.vie.mazerunner.Move;
 
@@ -67,6 +73,25 @@ public class TestHarness {
   private static long SECONDS_FOR_COMPLETE = 10;
   private static long SECONDS_FOR_MOVE = 3;
 
+  // Size of the generated boards a player is warmed up on
+  private static final int WARM_UP_BOARD_SIZE = 40;
+  private static final int DEFAULT_OUTPUT_TAIL_KB = 0;
+  private static final int MAX_OUTPUT_TAIL_KB = 1024;
+
+  // Times every player call of every board, shared so no board pays for its own threads
+  private static final PlayerWatchdog WATCHDOG = new PlayerWatchdog();
+
+  // Every game is appended here when a trace file is given
+  private static GameTrace.Writer traceWriter;
+
+  // Number of generated boards each player plays before its scored boards
+  private static int warmUpBoards = 0;
+  // The discarded results of the warm-up boards, only kept for their latencies
+  private static final Collection<TestResult> warmUpResults = new ConcurrentLinkedQueue<>();
+
+  // Bytes of player output kept per game, 0 discards it
+  static int outputTailBytes = DEFAULT_OUTPUT_TAIL_KB * 1024;
+
 
   private static List<MapBoard> loadBoards(File boardDir) {
     if (!boardDir.exists() || !boardDir.isDirectory()) {
@@ -75,11 +100,10 @@ public class TestHarness {
     }
 
     List<MapBoard> boards = new LinkedList<>();
-    for (File boardFile : boardDir
-        .listFiles(file -> file.getName().toLowerCase().endsWith(".csv"))) {
+    for (File boardFile : boardFilesIn(boardDir)) {
       System.out.println("Loading board " + boardFile.getAbsolutePath());
       try {
-        boards.add(MapBoard.parseBoard(boardFile.getAbsolutePath()));
+        boards.add(BoardRepository.getInstance().getBoard(boardFile));
       } catch (Exception e) {
         throw new RuntimeException("Could not load board " + boardFile.getAbsolutePath(), e);
       }
@@ -88,37 +112,146 @@ public class TestHarness {
     return boards;
   }
 
-  private static IPlayer loadPlayer(File jarFile) {
+  /**
+   * Lists the boards of a directory. A board converted by {@link BoardConverter} next to its CSV
+   * file is played once, from the binary file.
+   */
+  private static File[] boardFilesIn(File boardDir) {
+    Map<String, File> boardFiles = new LinkedHashMap<>();
+    for (File file : boardDir.listFiles()) {
+      String name = file.getName().toLowerCase();
+      if (name.endsWith(BinaryBoardFile.EXTENSION)) {
+        boardFiles.put(baseName(name, BinaryBoardFile.EXTENSION), file);
+      } else if (name.endsWith(".csv")) {
+        boardFiles.putIfAbsent(baseName(name, ".csv"), file);
+      }
+    }
+    return boardFiles.values().toArray(new File[0]);
+  }
+
+  private static String baseName(String fileName, String extension) {
+    return fileName.substring(0, fileName.length() - extension.length());
+  }
+
+  static IPlayer loadPlayer(File jarFile) {
+    return newPlayer(jarFile, loadPlayerClass(jarFile));
+  }
+
+  private static Class<?> loadPlayerClass(File jarFile) {
     try {
       URLClassLoader loader = new StudentClassLoader(jarFile.toURI().toURL());
       try {
-        Class<?> clazz = Class.forName("MyPlayer", true, loader);
-        return (IPlayer) clazz.getDeclaredConstructor().newInstance();
-      } catch (InstantiationException | IllegalAccessException | IllegalArgumentException
-          | InvocationTargetException | NoSuchMethodException | SecurityException
-          | ClassNotFoundException e) {
+        return Class.forName("MyPlayer", true, loader);
+      } catch (ClassNotFoundException e) {
         throw new RuntimeException("Could not load MyPlayer from jar " + jarFile.getName(), e);
       }
-    } catch (MalformedURLException e) {
-      throw new RuntimeException(e);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
     }
+  }
 
+  private static IPlayer newPlayer(File jarFile, Class<?> clazz) {
+    try {
+      return (IPlayer) clazz.getDeclaredConstructor().newInstance();
+    } catch (InstantiationException | IllegalAccessException | IllegalArgumentException
+        | InvocationTargetException | NoSuchMethodException | SecurityException
+        | ClassCastException e) {
+      throw new RuntimeException("Could not load MyPlayer from jar " + jarFile.getName(), e);
+    }
   }
 
   public static void main(String[] args) {
 
     CommandLineArgs cliArgs = CommandLineArgs.parse(args);
     if (cliArgs != null) { // valid syntax
+      if (cliArgs.getTraceFile() != null) {
+        try {
+          traceWriter = new GameTrace.Writer(cliArgs.getTraceFile());
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      }
+      warmUpBoards = cliArgs.getWarmUpBoards();
+      outputTailBytes = cliArgs.getOutputTailBytes();
+      // Player output goes to a bounded tail per game instead of the console
+      OutputRouter.install();
       List<MapBoard> boards = loadBoards(cliArgs.getBoardDirectory());
-      Collection<TestResult> results = processPlayerJarDirectory(cliArgs.getJarDirectory(), boards);
+      Collection<TestResult> results;
+      if (cliArgs.isIsolated()) {
+        results = processPlayerJarDirectory(cliArgs.getJarDirectory(),
+            Arrays.asList(boardFilesIn(cliArgs.getBoardDirectory())), cliArgs.getWorkers(),
+            cliArgs.getWorkerHeap());
+      } else if (cliArgs.getWorkers() > 1) {
+        results =
+            processPlayerJarDirectory(cliArgs.getJarDirectory(), boards, cliArgs.getWorkers());
+      } else {
+        results = processPlayerJarDirectory(cliArgs.getJarDirectory(), boards);
+      }
+      printLatencySummary(results);
       try {
-        TestResult.printResults(new FileWriter(cliArgs.csvOutputFile), results);
+        TestResult.printResults(new FileWriter(cliArgs.csvOutputFile), results,
+            outputTailBytes > 0);
+        if (traceWriter != null) {
+          traceWriter.close();
+        }
       } catch (IOException e) {
         throw new UncheckedIOException(e);
       }
     }
   }
 
+  /**
+   * Prints the analyzeBoard() and selectMove() latencies of each jar over all of its boards. When
+   * players were warmed up, the latencies of the warm-up boards are printed as well, they are the
+   * latencies of the player before the JIT compiled it.
+   */
+  private static void printLatencySummary(Collection<TestResult> results) {
+    Map<String, LatencyHistogram[]> warm = latenciesByJar(results);
+    Map<String, LatencyHistogram[]> cold = latenciesByJar(warmUpResults);
+    for (Map.Entry<String, LatencyHistogram[]> jar : warm.entrySet()) {
+      LatencyHistogram[] coldLatency = cold.get(jar.getKey());
+      if (coldLatency != null) {
+        System.out.println("Cold analyze latency of " + jar.getKey() + ": " + coldLatency[0]);
+        System.out.println("Cold move latency of " + jar.getKey() + ": " + coldLatency[1]);
+      }
+      System.out.println("Analyze latency of " + jar.getKey() + ": " + jar.getValue()[0]);
+      System.out.println("Move latency of " + jar.getKey() + ": " + jar.getValue()[1]);
+    }
+  }
+
+  private static Map<String, LatencyHistogram[]> latenciesByJar(Collection<TestResult> results) {
+    Map<String, LatencyHistogram[]> byJar = new TreeMap<>();
+    for (TestResult result : results) {
+      LatencyHistogram[] latency = byJar.computeIfAbsent(result.getJarPath(),
+          jar -> new LatencyHistogram[] {new LatencyHistogram(), new LatencyHistogram()});
+      latency[0].add(result.getAnalyzeLatency());
+      latency[1].add(result.getMoveLatency());
+    }
+    return byJar;
+  }
+
+  /**
+   * Plays a player on generated boards so the JIT has compiled it before its scored boards, and
+   * analyzeBoard() on the first scored board is not timed in the interpreter. The results are not
+   * scored or traced, only their latencies are kept. A player that fails a warm-up board is not
+   * warmed up any further.
+   *
+   * @return The results of the warm-up boards
+   */
+  static List<TestResult> warmUp(String jar, IPlayer player, int boards) {
+    List<TestResult> results = new ArrayList<>();
+    for (int i = 0; i < boards; ++i) {
+      MapBoard board = (MapBoard) MapBoard.randomizedPrim("warmup_" + i, WARM_UP_BOARD_SIZE,
+          WARM_UP_BOARD_SIZE, 20, 100, 50, WARM_UP_BOARD_SIZE * WARM_UP_BOARD_SIZE * 10);
+      TestResult result = playBoard(jar, player, board, null);
+      results.add(result);
+      if (result.getException() != null) {
+        break;
+      }
+    }
+    return results;
+  }
+
   private static Collection<TestResult> processPlayerJarDirectory(File directory,
       List<MapBoard> boards) {
     if (!directory.exists() || !directory.isDirectory()) {
@@ -129,6 +262,11 @@ public class TestHarness {
     for (File jar : directory.listFiles(file -> file.getName().endsWith(".jar"))) {
       try {
         IPlayer player = loadPlayer(jar);
+        if (warmUpBoards > 0) {
+          System.out.println("\nWarming up " + jar + " for " + player.getName() + " on "
+              + warmUpBoards + " generated boards");
+          warmUpResults.addAll(warmUp(jar.getName(), player, warmUpBoards));
+        }
         for (MapBoard board : boards) {
           System.out.println(
               "\nProcessing " + jar + " for " + player.getName() + " on board " + board.getName());
@@ -144,47 +282,206 @@ public class TestHarness {
     return results;
   }
 
-  public static TestResult runBoard(final String jar, final IPlayer player, final MapBoard board) {
-    ExecutorService service = Executors.newCachedThreadPool();
-    PrintStream oldOut = System.out;
-    ByteArrayOutputStream newOut = new ByteArrayOutputStream();
+  /**
+   * Tournament mode: spreads every (jar, board) pair across a pool of worker threads. The classes
+   * of a jar are loaded and warmed up once, as in sequential mode, and each pair is then played by
+   * its own new player on its own copy of the board. The players of a jar running at once share
+   * the static fields of its classes, which the -p help warns about. The results are returned in
+   * jar then board order regardless of the order in which the pairs finish.
+   */
+  private static Collection<TestResult> processPlayerJarDirectory(File directory,
+      List<MapBoard> boards, int workers) {
+    if (!directory.exists() || !directory.isDirectory()) {
+      throw new RuntimeException(directory.getAbsolutePath() + " is not a directory");
+    }
+
+    ExecutorService pool = Executors.newFixedThreadPool(workers);
     try {
-      // Silence any output coming from student code
-      // This is essential to running speedy solutions
-      System.setOut(new PrintStream(newOut));
+      List<Future<TestResult>> pending = new ArrayList<>();
+      List<File> pendingJars = new ArrayList<>();
+      for (File jar : directory.listFiles(file -> file.getName().endsWith(".jar"))) {
+        CompletableFuture<Class<?>> playerClass = CompletableFuture.supplyAsync(() -> {
+          Class<?> clazz = loadPlayerClass(jar);
+          if (warmUpBoards > 0) {
+            warmUpResults.addAll(warmUp(jar.getName(), newPlayer(jar, clazz), warmUpBoards));
+          }
+          return clazz;
+        }, pool);
+        // The pairs of the jar are only queued once its classes are loaded, so no worker waits
+        // for a jar while the others are still warming up
+        for (MapBoard board : boards) {
+          pending.add(playerClass.thenApplyAsync(clazz -> {
+            IPlayer player = newPlayer(jar, clazz);
+            TestResult result = runBoard(jar.getName(), player, new MapBoard(board));
+            System.out.println("\nProcessed " + jar + " for " + player.getName() + " on board "
+                + board.getName() + "\n" + result);
+            return result;
+          }, pool));
+          pendingJars.add(jar);
+        }
+      }
+
+      List<TestResult> results = new LinkedList<>();
+      for (int i = 0; i < pending.size(); ++i) {
+        try {
+          results.add(pending.get(i).get());
+        } catch (ExecutionException e) {
+          System.err.println("Problem processing jar " + pendingJars.get(i).getName()
+              + e.getCause().getMessage());
+          e.getCause().printStackTrace();
+        }
+      }
+      return results;
+    } catch (InterruptedException e) {
+      throw new RuntimeException("Unexpected Framework error", e);
+    } finally {
+      pool.shutdownNow();
+    }
+  }
+
+  /**
+   * Isolated mode: plays every jar in the child JVMs of an {@link IsolatedPlayerPool}, so a player
+   * that exits, runs out of memory or leaks threads only takes its own worker down. Up to workers
+   * jars are played at once, each by one worker, and the results are returned in jar then board
+   * order.
+   */
+  private static Collection<TestResult> processPlayerJarDirectory(File directory,
+      List<File> boardFiles, int workers, String workerHeap) {
+    if (!directory.exists() || !directory.isDirectory()) {
+      throw new RuntimeException(directory.getAbsolutePath() + " is not a directory");
+    }
+
+    ExecutorService pool = Executors.newFixedThreadPool(workers);
+    try (IsolatedPlayerPool isolated = new IsolatedPlayerPool(workerHeap, outputTailBytes)) {
+      List<Future<List<TestResult>>> pending = new ArrayList<>();
+      List<File> pendingJars = new ArrayList<>();
+      for (File jar : directory.listFiles(file -> file.getName().endsWith(".jar"))) {
+        pending.add(pool.submit(() -> {
+          List<TestResult> results =
+              isolated.play(jar, boardFiles, warmUpBoards, warmUpResults, traceWriter);
+          StringBuilder progress = new StringBuilder();
+          for (TestResult result : results) {
+            progress.append("\nProcessed ").append(jar).append(" on board ")
+                .append(result.getBoardName()).append("\n").append(result).append("\n");
+          }
+          System.out.print(progress);
+          return results;
+        }));
+        pendingJars.add(jar);
+      }
+
+      List<TestResult> results = new LinkedList<>();
+      for (int i = 0; i < pending.size(); ++i) {
+        try {
+          results.addAll(pending.get(i).get());
+        } catch (ExecutionException e) {
+          System.err.println("Problem processing jar " + pendingJars.get(i).getName()
+              + e.getCause().getMessage());
+          e.getCause().printStackTrace();
+        }
+      }
+      return results;
+    } catch (InterruptedException e) {
+      throw new RuntimeException("Unexpected Framework error", e);
+    } finally {
+      pool.shutdownNow();
+    }
+  }
 
-      runWithTimeOut(service, () -> player.analyzeBoard(new MapBoard(board)), SECONDS_FOR_ANALYZE);
+  public static TestResult runBoard(final String jar, final IPlayer player, final MapBoard board) {
+    final GameTrace.Recorder trace = traceWriter != null ? new GameTrace.Recorder(board) : null;
+    TestResult result = playBoard(jar, player, board, trace);
 
-      while (!board.isComplete()) {
-        runWithTimeOut(service, () -> {
-          Move mv = player.selectMove(new MapBoard(board));
-          board.move(mv);
-        }, SECONDS_FOR_MOVE);
+    if (trace != null) {
+      try {
+        traceWriter.append(trace.finish(jar, player.getName(), board.getName(),
+            result.getScore(), result.getException()));
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
       }
+    }
+    return result;
+  }
+
+  static TestResult playBoard(final String jar, final IPlayer player,
+      final MapBoard board, final GameTrace.Recorder trace) {
+    final LatencyHistogram analyzeLatency = new LatencyHistogram();
+    final LatencyHistogram moveLatency = new LatencyHistogram();
+    final LatencyHistogram completedLatency = new LatencyHistogram();
+    final OutputRouter.Tail output = new OutputRouter.Tail(outputTailBytes);
+    final OutputRouter router = OutputRouter.getInstance();
+    TestResult result = null;
+    final PrintStream console = System.out;
+    if (router == null) {
+      // Silence any output coming from student code, as it is essential to running speedy
+      // solutions. Without a router System.out is swapped for the whole process, so this only
+      // suits one game at a time, as in the GUI.
+      System.setOut(output.newPrintStream());
+    }
+    try {
+      WATCHDOG.run(budget -> {
+        // Whatever the player prints, and the threads it starts, goes to the tail of this game
+        if (router != null) {
+          router.route(output);
+        }
+        try {
+          budget.start(SECONDS_FOR_ANALYZE);
+          long started = System.nanoTime();
+          player.analyzeBoard(new MapBoard(board));
+          long elapsed = System.nanoTime() - started;
+          analyzeLatency.record(elapsed);
+          if (trace != null) {
+            trace.setAnalyzeTime(elapsed);
+          }
 
-      runWithTimeOut(service, () -> player.gameCompleted(new MapBoard(board)),
-          SECONDS_FOR_COMPLETE);
+          while (!board.isComplete()) {
+            budget.start(SECONDS_FOR_MOVE);
+            started = System.nanoTime();
+            Move mv = player.selectMove(board.snapshot());
+            elapsed = System.nanoTime() - started;
+            moveLatency.record(elapsed);
+            Location from = board.getPlayerLocation();
+            board.move(mv);
+            if (trace != null) {
+              trace.addMove(from, board.getPlayerLocation(), elapsed);
+            }
+          }
 
-      return new TestResult(jar, player.getName(), board.getName(), board.getScore());
+          budget.start(SECONDS_FOR_COMPLETE);
+          started = System.nanoTime();
+          player.gameCompleted(board.snapshot());
+          completedLatency.record(System.nanoTime() - started);
+          budget.stop();
+        } finally {
+          if (router != null) {
+            router.unroute();
+          }
+        }
+      });
+
+      result = new TestResult(jar, player.getName(), board.getName(), board.getScore(), null,
+          analyzeLatency, moveLatency, completedLatency, output.toString());
 
     } catch (InterruptedException e) {
       throw new RuntimeException("Unexpected Framework error", e);
     } catch (ExecutionException e) {
       // Problem with student solution
-      return new TestResult(jar, player.getName(), board.getName(), 0, e.getCause());
+      result = new TestResult(jar, player.getName(), board.getName(), 0, e.getCause(),
+          analyzeLatency, moveLatency, completedLatency, output.toString());
     } catch (TimeoutException e) {
-      // student solution never returned us control
-      return new TestResult(jar, player.getName(), board.getName(), 0, e);
+      // student solution never returned us control, copy what it recorded before it ran away
+      if (trace != null) {
+        trace.freeze();
+      }
+      result = new TestResult(jar, player.getName(), board.getName(), 0, e,
+          analyzeLatency.copy(), moveLatency.copy(), completedLatency.copy(), output.toString());
     } finally {
-      System.setOut(oldOut);
-      service.shutdownNow();
+      output.close();
+      if (router == null) {
+        System.setOut(console);
+      }
     }
-  }
-
-  private static void runWithTimeOut(ExecutorService service, Runnable r, long seconds)
-      throws InterruptedException, ExecutionException, TimeoutException {
-    Future<?> f = service.submit(r);
-    f.get(seconds, TimeUnit.SECONDS);
+    return result;
   }
 
   private static class CommandLineArgs {
@@ -196,14 +493,52 @@ public class TestHarness {
       return new File(boardDirectory);
     }
 
+    public int getWorkers() {
+      return workers;
+    }
+
+    public int getWarmUpBoards() {
+      return warmUpBoards;
+    }
+
+    public boolean isIsolated() {
+      return isolated;
+    }
+
+    public String getWorkerHeap() {
+      return workerHeap;
+    }
+
+    public int getOutputTailBytes() {
+      return outputTailKb * 1024;
+    }
+
+    public File getTraceFile() {
+      return traceFile != null ? new File(traceFile) : null;
+    }
+
     private final String jarDirectory;
     private final String boardDirectory;
     private final String csvOutputFile;
+    private final int workers;
+    private final String traceFile;
+    private final int warmUpBoards;
+    private final boolean isolated;
+    private final String workerHeap;
+    private final int outputTailKb;
 
-    private CommandLineArgs(String jarDirectory, String boardDirectory, String csvOutputFile) {
+    private CommandLineArgs(String jarDirectory, String boardDirectory, String csvOutputFile,
+        int workers, String traceFile, int warmUpBoards, boolean isolated, String workerHeap,
+        int outputTailKb) {
       this.jarDirectory = jarDirectory;
       this.boardDirectory = boardDirectory;
       this.csvOutputFile = csvOutputFile;
+      this.workers = workers;
+      this.traceFile = traceFile;
+      this.warmUpBoards = warmUpBoards;
+      this.isolated = isolated;
+      this.workerHeap = workerHeap;
+      this.outputTailKb = outputTailKb;
     }
 
     public static CommandLineArgs parse(String[] args) {
@@ -235,12 +570,83 @@ public class TestHarness {
           .required() //
           .build());
 
+      cmdOps.addOption(Option.builder("p") //
+          .longOpt("parallel") //
+          .argName("workers") //
+          .hasArg() //
+          .desc("Number of (jar, board) pairs to run at once, defaults to 1. The players of "
+              + "one jar share its classes, so a player keeping game state in static fields "
+              + "may break when above 1, unless --isolate is also given") //
+          .valueSeparator('=') //
+          .build());
+
+      cmdOps.addOption(Option.builder("t") //
+          .longOpt("trace") //
+          .argName("file") //
+          .hasArg() //
+          .desc("Trace file to append the moves of every game to") //
+          .valueSeparator('=') //
+          .build());
+
+      cmdOps.addOption(Option.builder("w") //
+          .longOpt("warmup") //
+          .argName("boards") //
+          .hasArg() //
+          .desc("Number of generated boards each player plays before its scored boards, "
+              + "defaults to 0") //
+          .valueSeparator('=') //
+          .build());
+
+      cmdOps.addOption(Option.builder("i") //
+          .longOpt("isolate") //
+          .desc("Play the jars in child JVMs, as many at once as --parallel workers. The boards "
+              + "are still parsed here first, so a broken board stops the run before any "
+              + "worker starts") //
+          .build());
+
+      cmdOps.addOption(Option.builder("m") //
+          .longOpt("workerheap") //
+          .argName("size") //
+          .hasArg() //
+          .desc("Maximum heap of each isolated worker, like 512m, defaults to "
+              + IsolatedPlayerPool.DEFAULT_HEAP) //
+          .valueSeparator('=') //
+          .build());
+
+      cmdOps.addOption(Option.builder("o") //
+          .longOpt("outputtail") //
+          .argName("kb") //
+          .hasArg() //
+          .desc("Kilobytes of player output kept per board and written to an Output Tail "
+              + "column, defaults to " + DEFAULT_OUTPUT_TAIL_KB + ", 0 discards it") //
+          .valueSeparator('=') //
+          .build());
+
       CommandLineParser parser = new DefaultParser();
       try {
         CommandLine line = parser.parse(cmdOps, args);
+        int workers = Integer.parseInt(line.getOptionValue("p", "1"));
+        if (workers < 1) {
+          throw new ParseException("Invalid number of parallel workers " + workers);
+        }
+        if (line.hasOption("m") && !line.getOptionValue("m").matches("[0-9]+[kKmMgG]?")) {
+          throw new ParseException("Invalid worker heap " + line.getOptionValue("m"));
+        }
+        int warmUpBoards = Integer.parseInt(line.getOptionValue("w", "0"));
+        if (warmUpBoards < 0) {
+          throw new ParseException("Invalid number of warm-up boards " + warmUpBoards);
+        }
+        int outputTailKb =
+            Integer.parseInt(line.getOptionValue("o", String.valueOf(DEFAULT_OUTPUT_TAIL_KB)));
+        if (outputTailKb < 0 || outputTailKb > MAX_OUTPUT_TAIL_KB) {
+          throw new ParseException("Invalid output tail " + outputTailKb + "KB");
+        }
         return new CommandLineArgs(line.getOptionValue("j"), line.getOptionValue("b"),
-            line.getOptionValue("c"));
-      } catch (ParseException e) {
+            line.getOptionValue("c"), workers,
+            line.getOptionValue("t"), warmUpBoards,
+            line.hasOption("i"), line.getOptionValue("m", IsolatedPlayerPool.DEFAULT_HEAP),
+            outputTailKb);
+      } catch (ParseException | NumberFormatException e) {
         System.err.println("Invalid Usage: " + e.getMessage());
         HelpFormatter formatter = new HelpFormatter();
         formatter.printHelp("com.ibm.vie.mazerunner.util.TestHarness", cmdOps, true);
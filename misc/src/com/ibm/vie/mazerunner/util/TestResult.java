@@ -18,6 +18,9 @@ package com.ibm.vie.mazerunner.util;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import org.apache.commons.csv.CSVFormat;
 import org.apache.commons.csv.CSVPrinter;
 
@@ -28,24 +31,87 @@ public class TestResult {
   private final int score;
   private final Throwable exception;
 
-  private static String[] CSV_HEADERS =
-      {"Jar Path", "Student Name", "Board Name", "Score", "Failure"};
+  // How long the player took in each callback, in nanoseconds
+  private final LatencyHistogram analyzeLatency;
+  private final LatencyHistogram moveLatency;
+  private final LatencyHistogram completedLatency;
+  // The end of what the player printed during the game
+  private final String outputTail;
+
+  private static String[] CSV_HEADERS = {"Jar Path", "Student Name", "Board Name", "Score",
+      "Failure", "Analyze Micros", "Move p50 Micros", "Move p99 Micros", "Move Max Micros",
+      "Completed Micros"};
+  private static String OUTPUT_TAIL_HEADER = "Output Tail";
 
   public TestResult(String jarPath, String studentName, String boardName, int score) {
-    this.jarPath = jarPath;
-    this.studentName = (studentName != null) ? studentName : "";
-    this.boardName = boardName;
-    this.score = score;
-    this.exception = null;
+    this(jarPath, studentName, boardName, score, null);
   }
 
   public TestResult(String jarPath, String studentName, String boardName, int score,
       Throwable exception) {
+    this(jarPath, studentName, boardName, score, exception, new LatencyHistogram(),
+        new LatencyHistogram(), new LatencyHistogram());
+  }
+
+  public TestResult(String jarPath, String studentName, String boardName, int score,
+      Throwable exception, LatencyHistogram analyzeLatency, LatencyHistogram moveLatency,
+      LatencyHistogram completedLatency) {
+    this(jarPath, studentName, boardName, score, exception, analyzeLatency, moveLatency,
+        completedLatency, "");
+  }
+
+  public TestResult(String jarPath, String studentName, String boardName, int score,
+      Throwable exception, LatencyHistogram analyzeLatency, LatencyHistogram moveLatency,
+      LatencyHistogram completedLatency, String outputTail) {
     this.jarPath = jarPath;
     this.studentName = (studentName != null) ? studentName : "";
     this.boardName = boardName;
     this.score = score;
     this.exception = exception;
+    this.analyzeLatency = analyzeLatency;
+    this.moveLatency = moveLatency;
+    this.completedLatency = completedLatency;
+    this.outputTail = outputTail;
+  }
+
+  public String getJarPath() {
+    return jarPath;
+  }
+
+  public String getStudentName() {
+    return studentName;
+  }
+
+  public String getBoardName() {
+    return boardName;
+  }
+
+  /**
+   * @return The time analyzeBoard() took, nothing is recorded when it did not return
+   */
+  public LatencyHistogram getAnalyzeLatency() {
+    return analyzeLatency;
+  }
+
+  /**
+   * @return The time each selectMove() that returned took
+   */
+  public LatencyHistogram getMoveLatency() {
+    return moveLatency;
+  }
+
+  /**
+   * @return The time gameCompleted() took, nothing is recorded when it did not return
+   */
+  public LatencyHistogram getCompletedLatency() {
+    return completedLatency;
+  }
+
+  /**
+   * @return The last bytes the player printed during the game, as many as the harness keeps
+   */
+  public String getOutputTail() {
+    return outputTail;
   }
 
   public Throwable getException() {
@@ -57,11 +123,38 @@ public class TestResult {
   }
 
   public static void printResults(FileWriter fw, Iterable<TestResult> results) {
-    CSVFormat format = CSVFormat.DEFAULT.builder().setHeader(TestResult.CSV_HEADERS).build();
+    printResults(fw, results, false);
+  }
+
+  /**
+   * Writes results as CSV.
+   *
+   * @param fw Where to write
+   * @param results The results to write
+   * @param withOutputTail true to add a column with the output tail of each game, which can span
+   *        several lines
+   */
+  public static void printResults(FileWriter fw, Iterable<TestResult> results,
+      boolean withOutputTail) {
+    List<String> headers = new ArrayList<>(Arrays.asList(CSV_HEADERS));
+    if (withOutputTail) {
+      headers.add(OUTPUT_TAIL_HEADER);
+    }
+    CSVFormat format =
+        CSVFormat.DEFAULT.builder().setHeader(headers.toArray(new String[0])).build();
     try (CSVPrinter printer = new CSVPrinter(fw, format)) {
       for (TestResult result : results) {
-        printer.printRecord(result.jarPath, result.studentName, result.boardName, result.score,
-            (result.exception != null) ? result.exception.getClass().getSimpleName() : "");
+        List<Object> record = new ArrayList<>(Arrays.<Object>asList(result.jarPath,
+            result.studentName, result.boardName, result.score, failureName(result.exception),
+            result.analyzeLatency.getMicrosAtPercentile(100),
+            result.moveLatency.getMicrosAtPercentile(50),
+            result.moveLatency.getMicrosAtPercentile(99),
+            result.moveLatency.getMicrosAtPercentile(100),
+            result.completedLatency.getMicrosAtPercentile(100)));
+        if (withOutputTail) {
+          record.add(result.outputTail);
+        }
+        printer.printRecord(record);
       }
     } catch (IOException e) {
       throw new UncheckedIOException(e);
@@ -71,7 +164,19 @@ public class TestResult {
 
   public String toString() {
     return "Jar=" + jarPath + "\n" + "Name=" + studentName + "\nBoard=" + boardName + "\nScore="
-        + score + "\nError="
-        + ((this.exception != null) ? this.exception.getClass().getSimpleName() : "null");
+        + score + "\nError=" + ((this.exception != null) ? failureName(this.exception) : "null");
+  }
+
+  /**
+   * @return The simple name of the class of a failure, also for failures of isolated players
+   */
+  private static String failureName(Throwable exception) {
+    if (exception == null) {
+      return "";
+    }
+    if (exception instanceof PlayerFailure) {
+      return ((PlayerFailure) exception).getSimpleClassName();
+    }
+    return exception.getClass().getSimpleName();
   }
 }